@@ -0,0 +1,70 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.benchmark;
+
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.image.RawImageExtractor;
+import com.machinezoo.sourceafis.FingerprintTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Template extraction from a captured sensor buffer.
+ *
+ * <p>{@code imageIoBmp*} reproduce the former capture path, which copied the
+ * buffer into a {@code BufferedImage} and encoded it with {@code ImageIO};
+ * {@code rawExtractor} is the {@link RawImageExtractor} path used today.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImageBenchmark {
+
+    private byte[] pixels;
+    private RawImageExtractor extractor;
+
+    @Setup
+    public void setUp() {
+        pixels = Samples.image("finger-a-1");
+        extractor = new RawImageExtractor();
+    }
+
+    @Benchmark
+    public byte[] imageIoBmpEncode() throws IOException {
+        return encodeBmp();
+    }
+
+    @Benchmark
+    public FingerprintTemplate imageIoBmpExtract() throws IOException {
+        return new FingerprintTemplate(encodeBmp());
+    }
+
+    @Benchmark
+    public FingerprintTemplate rawExtractor() {
+        return extractor.extract(pixels, Samples.WIDTH, Samples.HEIGHT, Samples.DPI);
+    }
+
+    private byte[] encodeBmp() throws IOException {
+        BufferedImage image = new BufferedImage(Samples.WIDTH, Samples.HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
+        image.getRaster().setDataElements(0, 0, Samples.WIDTH, Samples.HEIGHT, pixels);
+
+        try (ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+            ImageIO.write(image, "bmp", output);
+            return output.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.benchmark;
+
+import br.com.vrsoftware.vrpdvprofingerprintintegration.utils.HttpResponseUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON response building through {@link HttpResponseUtil#sendSuccess}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseBenchmark {
+
+    private BenchmarkExchange exchange;
+
+    private Map<String, Object> matchData;
+    private Map<String, Object> captureData;
+    private Map<String, Object> identifyData;
+
+    @Setup
+    public void setUp() {
+        exchange = new BenchmarkExchange();
+
+        matchData = new HashMap<>();
+        matchData.put("matched", true);
+        matchData.put("score", 87.25);
+
+        captureData = new HashMap<>();
+        captureData.put("template", Samples.template("finger-a-1"));
+
+        List<Map<String, Object>> candidates = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            Map<String, Object> candidate = new HashMap<>();
+            candidate.put("id", "customer-" + i);
+            candidate.put("score", 90.0 - i * 7.5);
+            candidates.add(candidate);
+        }
+
+        identifyData = new HashMap<>();
+        identifyData.put("matched", true);
+        identifyData.put("candidates", candidates);
+        identifyData.put("compared", 1250);
+        identifyData.put("complete", true);
+    }
+
+    @Benchmark
+    public long matchResponse() throws IOException {
+        return send(matchData);
+    }
+
+    @Benchmark
+    public long captureResponse() throws IOException {
+        return send(captureData);
+    }
+
+    @Benchmark
+    public long identifyResponse() throws IOException {
+        return send(identifyData);
+    }
+
+    private long send(Map<String, Object> data) throws IOException {
+        exchange.reset();
+        HttpResponseUtil.sendSuccess(exchange, 200, null, data);
+        return exchange.written();
+    }
+}
@@ -0,0 +1,72 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+/**
+ * Loads the synthetic sample images and templates bundled as test resources.
+ */
+final class Samples {
+
+    private static final String ROOT = "/samples/";
+
+    static final int WIDTH;
+    static final int HEIGHT;
+    static final double DPI;
+
+    static {
+        Properties properties = new Properties();
+
+        try (InputStream input = open("samples.properties")) {
+            properties.load(input);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read sample metadata", e);
+        }
+
+        WIDTH = Integer.parseInt(properties.getProperty("width"));
+        HEIGHT = Integer.parseInt(properties.getProperty("height"));
+        DPI = Double.parseDouble(properties.getProperty("dpi"));
+    }
+
+    private Samples() {
+    }
+
+    /**
+     * Returns the raw grayscale buffer of a sample image.
+     */
+    static byte[] image(String name) {
+        return read(name + ".raw");
+    }
+
+    /**
+     * Returns the SourceAFIS JSON of a sample template.
+     */
+    static String template(String name) {
+        return new String(read(name + ".json"), StandardCharsets.UTF_8).trim();
+    }
+
+    private static byte[] read(String resource) {
+        try (InputStream input = open(resource)) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+
+            return output.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read sample " + resource, e);
+        }
+    }
+
+    private static InputStream open(String resource) throws IOException {
+        InputStream input = Samples.class.getResourceAsStream(ROOT + resource);
+        if (input == null) throw new IOException("Missing sample " + resource);
+        return input;
+    }
+}
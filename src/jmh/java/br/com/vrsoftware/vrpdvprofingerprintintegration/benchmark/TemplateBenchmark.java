@@ -0,0 +1,65 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.benchmark;
+
+import com.machinezoo.sourceafis.FingerprintMatcher;
+import com.machinezoo.sourceafis.FingerprintTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Template deserialization, matcher construction and 1:1 matching.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TemplateBenchmark {
+
+    private String probeJson;
+
+    private FingerprintTemplate probe;
+    private FingerprintTemplate sameFinger;
+    private FingerprintTemplate differentFinger;
+    private FingerprintMatcher matcher;
+
+    @Setup
+    public void setUp() {
+        probeJson = Samples.template("finger-a-1");
+
+        probe = new FingerprintTemplate(probeJson);
+        sameFinger = new FingerprintTemplate(Samples.template("finger-a-2"));
+        differentFinger = new FingerprintTemplate(Samples.template("finger-b-1"));
+        matcher = new FingerprintMatcher(probe);
+    }
+
+    @Benchmark
+    public FingerprintTemplate deserializeJson() {
+        return new FingerprintTemplate(probeJson);
+    }
+
+    @Benchmark
+    public FingerprintMatcher constructMatcher() {
+        return new FingerprintMatcher(probe);
+    }
+
+    @Benchmark
+    public double matchSameFinger() {
+        return matcher.match(sameFinger);
+    }
+
+    @Benchmark
+    public double matchDifferentFinger() {
+        return matcher.match(differentFinger);
+    }
+}
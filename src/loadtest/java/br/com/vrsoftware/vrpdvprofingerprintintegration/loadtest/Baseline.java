@@ -0,0 +1,81 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Latency and error limits the load test must stay within.
+ *
+ * <p>Keys are {@code <operation>.p50Ms}, {@code <operation>.p99Ms} and
+ * {@code <operation>.maxErrorRate}, plus {@code minThroughputRatio}, the
+ * share of the offered rate that must actually complete. Missing keys are
+ * not checked.</p>
+ */
+final class Baseline {
+
+    private final Properties limits;
+
+    private Baseline(Properties limits) {
+        this.limits = limits;
+    }
+
+    /**
+     * Reads the baseline from a file, or from the bundled
+     * {@code baseline.properties} when {@code path} is {@code null}.
+     */
+    static Baseline load(Path path) throws IOException {
+        Properties limits = new Properties();
+
+        try (InputStream input = path != null
+                ? Files.newInputStream(path)
+                : Baseline.class.getResourceAsStream("/baseline.properties")) {
+
+            if (input == null) throw new IOException("Missing baseline.properties");
+            limits.load(input);
+        }
+
+        return new Baseline(limits);
+    }
+
+    /**
+     * Returns one message per limit the result falls outside of; empty if it passes.
+     */
+    List<String> check(LoadResult result) {
+        List<String> violations = new ArrayList<>();
+
+        for (Operation operation : Operation.values()) {
+            LoadResult.Stats stats = result.stats(operation);
+            if (stats.count() == 0) continue;
+
+            String key = operation.key();
+
+            atMost(violations, key + ".p50Ms", stats.quantileMillis(0.5));
+            atMost(violations, key + ".p99Ms", stats.quantileMillis(0.99));
+            atMost(violations, key + ".maxErrorRate", stats.errorRate());
+        }
+
+        String ratio = limits.getProperty("minThroughputRatio");
+
+        if (ratio != null && result.throughput() < result.offeredRate() * Double.parseDouble(ratio)) {
+            violations.add(String.format(
+                    "throughput %.1f req/s below %s of the offered %.1f req/s",
+                    result.throughput(), ratio, result.offeredRate()
+            ));
+        }
+
+        return violations;
+    }
+
+    private void atMost(List<String> violations, String key, double actual) {
+        String limit = limits.getProperty(key);
+
+        if (limit != null && actual > Double.parseDouble(limit)) {
+            violations.add(String.format("%s = %.3f exceeds baseline %s", key, actual, limit));
+        }
+    }
+}
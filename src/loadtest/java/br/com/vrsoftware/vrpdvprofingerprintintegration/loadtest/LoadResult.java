@@ -0,0 +1,89 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.loadtest;
+
+import br.com.vrsoftware.vrpdvprofingerprintintegration.metrics.LatencyHistogram;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latencies and errors collected during the measured part of a run.
+ */
+final class LoadResult {
+
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+    private final double offeredRate;
+
+    private long elapsedNanos;
+
+    LoadResult(double offeredRate) {
+        this.offeredRate = offeredRate;
+
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new Stats());
+        }
+    }
+
+    Stats stats(Operation operation) {
+        return stats.get(operation);
+    }
+
+    void finish(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Returns the requests per second requested by the load schedule.
+     */
+    double offeredRate() {
+        return offeredRate;
+    }
+
+    /**
+     * Returns the requests per second completed during the measured window.
+     */
+    double throughput() {
+        long completed = 0;
+
+        for (Stats value : stats.values()) {
+            completed += value.count();
+        }
+
+        return elapsedNanos == 0 ? 0 : completed / (elapsedNanos / 1_000_000_000.0);
+    }
+
+    /**
+     * Latency histogram and error count of one operation.
+     */
+    static final class Stats {
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicLong errors = new AtomicLong();
+
+        void record(long nanos, boolean failed) {
+            latency.record(nanos);
+            if (failed) errors.incrementAndGet();
+        }
+
+        long count() {
+            return latency.count();
+        }
+
+        long errors() {
+            return errors.get();
+        }
+
+        double errorRate() {
+            long count = count();
+            return count == 0 ? 0 : (double) errors() / count;
+        }
+
+        double quantileMillis(double quantile) {
+            return latency.quantileNanos(quantile) / 1_000_000.0;
+        }
+
+        double maxMillis() {
+            return latency.maxNanos() / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.loadtest;
+
+import br.com.vrsoftware.vrpdvprofingerprintintegration.Main;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end HTTP load generator for the fingerprint service.
+ *
+ * <p>Starts {@link Main} in-process on an ephemeral port with the simulated
+ * reader and an in-memory gallery, then sends an open-loop request mix: requests
+ * are issued on a fixed schedule regardless of how fast earlier ones complete,
+ * and latency is measured from the scheduled send time, so a saturated service
+ * shows up as growing latency instead of a silently lower request rate.</p>
+ *
+ * <p>Settings are system properties:</p>
+ * <ul>
+ *   <li>{@code loadtest.rate} - requests per second, default 50</li>
+ *   <li>{@code loadtest.threads} - client threads, default 8</li>
+ *   <li>{@code loadtest.warmupSeconds} - unmeasured warm-up, default 5</li>
+ *   <li>{@code loadtest.durationSeconds} - measured window, default 30</li>
+ *   <li>{@code loadtest.mix} - operation weights, default
+ *       {@code match:60,identify:10,capture:10,health:20}</li>
+ *   <li>{@code loadtest.baseline} - baseline file, default the bundled one</li>
+ *   <li>{@code loadtest.report} - results file written after the run</li>
+ * </ul>
+ *
+ * <p>Exits with status 1 when the results fall outside the {@link Baseline}.</p>
+ */
+public final class LoadTest {
+
+    private static final String SAMPLES_DIR = "src/test/resources/samples";
+
+    private static final int CONNECT_TIMEOUT_MS = 5_000;
+    private static final int READ_TIMEOUT_MS = 60_000;
+
+    private final double rate = Double.parseDouble(System.getProperty("loadtest.rate", "50"));
+    private final int threads = Integer.getInteger("loadtest.threads", 8);
+    private final long warmupSeconds = Long.getLong("loadtest.warmupSeconds", 5);
+    private final long durationSeconds = Long.getLong("loadtest.durationSeconds", 30);
+    private final Map<Operation, Integer> mix = parseMix(
+            System.getProperty("loadtest.mix", "match:60,identify:10,capture:10,health:20")
+    );
+
+    private final Random random = new Random(1);
+
+    private String baseUrl;
+    private byte[] sameFingerMatch;
+    private byte[] differentFingerMatch;
+    private byte[] identifyProbe;
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        defaultProperty("fingerprint.gallery.file", "");
+        defaultProperty("fingerprint.simulated.dir", SAMPLES_DIR);
+        defaultProperty("fingerprint.simulated.presenceDelayMs", "20");
+        defaultProperty("fingerprint.simulated.latencyMs", "10");
+        defaultProperty("fingerprint.simulated.frameIntervalMs", "5");
+        defaultProperty("fingerprint.simulated.seed", "1");
+
+        String baseline = System.getProperty("loadtest.baseline");
+        String report = System.getProperty("loadtest.report");
+
+        HttpServer server = Main.start(0);
+        int status;
+
+        try {
+            LoadTest test = new LoadTest();
+            test.baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+            test.prepare();
+
+            LoadResult result = test.run();
+            test.print(result);
+
+            if (report != null) test.write(result, Paths.get(report));
+
+            List<String> violations = Baseline.load(baseline == null ? null : Paths.get(baseline)).check(result);
+
+            for (String violation : violations) {
+                System.out.println("REGRESSION: " + violation);
+            }
+
+            status = violations.isEmpty() ? 0 : 1;
+        } finally {
+            server.stop(0);
+        }
+
+        // The service executor threads are not daemons
+        System.exit(status);
+    }
+
+    /**
+     * Connects the simulated reader, enrolls the samples and builds the request bodies.
+     */
+    private void prepare() throws IOException {
+        expectOk(send("GET", "/fingerprint/init?modelId=3", null), "init");
+
+        String a1 = sample("finger-a-1.json");
+        String a2 = sample("finger-a-2.json");
+        String b1 = sample("finger-b-1.json");
+
+        expectOk(send("POST", "/fingerprint/enroll", enroll("a", a1)), "enroll");
+        expectOk(send("POST", "/fingerprint/enroll", enroll("b", b1)), "enroll");
+
+        sameFingerMatch = match(a1, a2);
+        differentFingerMatch = match(a1, b1);
+
+        JsonObject identify = new JsonObject();
+        identify.addProperty("digitalCaptured", a2);
+        identifyProbe = identify.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private LoadResult run() throws InterruptedException {
+        LoadResult result = new LoadResult(rate);
+        ExecutorService clients = Executors.newFixedThreadPool(threads);
+
+        long interval = (long) (1_000_000_000L / rate);
+        long start = System.nanoTime();
+        long measureStart = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureStart + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+        System.out.printf(
+                "Offering %.1f req/s from %d client threads: %d s warm-up, %d s measured%n",
+                rate, threads, warmupSeconds, durationSeconds
+        );
+
+        for (long i = 0; ; i++) {
+            long scheduled = start + i * interval;
+            if (scheduled >= end) break;
+
+            long delay = scheduled - System.nanoTime();
+            if (delay > 0) LockSupport.parkNanos(delay);
+
+            Operation operation = pick();
+            boolean measured = scheduled >= measureStart;
+            boolean sameFinger = (i & 1) == 0;
+
+            clients.execute(() -> {
+                boolean failed = !execute(operation, sameFinger);
+
+                // Measured from the scheduled send time to account for queueing
+                if (measured) result.stats(operation).record(System.nanoTime() - scheduled, failed);
+            });
+        }
+
+        clients.shutdown();
+        clients.awaitTermination(READ_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+        result.finish(Math.max(end, System.nanoTime()) - measureStart);
+
+        return result;
+    }
+
+    /**
+     * Sends one request and returns whether it succeeded.
+     */
+    private boolean execute(Operation operation, boolean sameFinger) {
+        try {
+            switch (operation) {
+                case MATCH:
+                    return send("POST", "/fingerprint/match", sameFinger ? sameFingerMatch : differentFingerMatch) < 400;
+                case IDENTIFY:
+                    return send("POST", "/fingerprint/identify", identifyProbe) < 400;
+                case CAPTURE:
+                    return send("GET", "/fingerprint/capture", null) < 400;
+                case HEALTH:
+                    return send("GET", "/health", null) < 400;
+                default:
+                    return false;
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private synchronized Operation pick() {
+        int total = 0;
+        for (int weight : mix.values()) total += weight;
+
+        int ticket = random.nextInt(total);
+
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+            ticket -= entry.getValue();
+            if (ticket < 0) return entry.getKey();
+        }
+
+        throw new IllegalStateException("Empty load mix");
+    }
+
+    private int send(String method, String path, byte[] body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            connection.setFixedLengthStreamingMode(body.length);
+
+            try (OutputStream output = connection.getOutputStream()) {
+                output.write(body);
+            }
+        }
+
+        int status = connection.getResponseCode();
+
+        // Drain the body so the connection is reused
+        InputStream input = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+
+        if (input != null) {
+            try (InputStream stream = input) {
+                byte[] buffer = new byte[8192];
+                while (stream.read(buffer) != -1) {
+                    // discard
+                }
+            }
+        }
+
+        return status;
+    }
+
+    private void print(LoadResult result) {
+        System.out.printf("%n%-10s %8s %8s %10s %10s %10s %10s%n",
+                "operation", "count", "errors", "p50 ms", "p90 ms", "p99 ms", "max ms");
+
+        for (Operation operation : Operation.values()) {
+            LoadResult.Stats stats = result.stats(operation);
+            if (stats.count() == 0) continue;
+
+            System.out.printf("%-10s %8d %8d %10.2f %10.2f %10.2f %10.2f%n",
+                    operation.key(),
+                    stats.count(),
+                    stats.errors(),
+                    stats.quantileMillis(0.5),
+                    stats.quantileMillis(0.9),
+                    stats.quantileMillis(0.99),
+                    stats.maxMillis());
+        }
+
+        System.out.printf("%nThroughput: %.1f req/s (offered %.1f req/s)%n", result.throughput(), result.offeredRate());
+    }
+
+    private void write(LoadResult result, Path path) throws IOException {
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write(String.format("offeredRate=%.3f%n", result.offeredRate()));
+            writer.write(String.format("throughput=%.3f%n", result.throughput()));
+
+            for (Operation operation : Operation.values()) {
+                LoadResult.Stats stats = result.stats(operation);
+                if (stats.count() == 0) continue;
+
+                String key = operation.key();
+
+                writer.write(String.format("%s.count=%d%n", key, stats.count()));
+                writer.write(String.format("%s.errorRate=%.5f%n", key, stats.errorRate()));
+                writer.write(String.format("%s.p50Ms=%.3f%n", key, stats.quantileMillis(0.5)));
+                writer.write(String.format("%s.p90Ms=%.3f%n", key, stats.quantileMillis(0.9)));
+                writer.write(String.format("%s.p99Ms=%.3f%n", key, stats.quantileMillis(0.99)));
+                writer.write(String.format("%s.maxMs=%.3f%n", key, stats.maxMillis()));
+            }
+        }
+    }
+
+    private static Map<Operation, Integer> parseMix(String value) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+
+        for (String part : value.split(",")) {
+            String[] pair = part.trim().split(":");
+            int weight = Integer.parseInt(pair[1].trim());
+
+            if (weight > 0) mix.put(Operation.valueOf(pair[0].trim().toUpperCase()), weight);
+        }
+
+        if (mix.isEmpty()) throw new IllegalArgumentException("Empty load mix: " + value);
+
+        return mix;
+    }
+
+    private static byte[] match(String captured, String stored) {
+        JsonObject json = new JsonObject();
+        json.addProperty("digitalCaptured", captured);
+        json.addProperty("digitalToCompare", stored);
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] enroll(String id, String template) {
+        JsonObject json = new JsonObject();
+        json.addProperty("id", id);
+        json.addProperty("template", template);
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String sample(String name) throws IOException {
+        try (InputStream input = LoadTest.class.getResourceAsStream("/samples/" + name)) {
+            if (input == null) throw new IOException("Missing sample " + name);
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+
+            return new String(output.toByteArray(), StandardCharsets.UTF_8).trim();
+        }
+    }
+
+    private static void expectOk(int status, String step) {
+        if (status >= 400) throw new IllegalStateException("Load test setup failed at " + step + ": HTTP " + status);
+    }
+
+    private static void defaultProperty(String key, String value) {
+        if (System.getProperty(key) == null) System.setProperty(key, value);
+    }
+}
@@ -0,0 +1,40 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.loadtest;
+
+/**
+ * Request types of the load mix.
+ */
+enum Operation {
+
+    /**
+     * {@code POST /fingerprint/match} with a same-finger or different-finger pair.
+     */
+    MATCH("match"),
+
+    /**
+     * {@code POST /fingerprint/identify} against the sample gallery.
+     */
+    IDENTIFY("identify"),
+
+    /**
+     * Blocking {@code GET /fingerprint/capture} on the simulated reader.
+     */
+    CAPTURE("capture"),
+
+    /**
+     * {@code GET /health}.
+     */
+    HEALTH("health");
+
+    private final String key;
+
+    Operation(String key) {
+        this.key = key;
+    }
+
+    /**
+     * Returns the name used in the mix, the report and the baseline.
+     */
+    String key() {
+        return key;
+    }
+}
@@ -1,6 +1,13 @@
 package br.com.vrsoftware.vrpdvprofingerprintintegration;
 
+import br.com.vrsoftware.vrpdvprofingerprintintegration.executor.Bulkhead;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.executor.BulkheadHandler;
 import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.FingerprintController;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.FingerprintEventController;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.device.DeviceSupervisor;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.gallery.FingerprintGallery;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.metrics.MetricsController;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.warmup.Warmup;
 import com.sun.net.httpserver.HttpServer;
 
 import java.net.InetSocketAddress;
@@ -26,6 +33,11 @@ public class Main {
      */
     private static final int PORT = 8090;
 
+    /**
+     * Threads that accept requests and dispatch them to the bulkheads.
+     */
+    private static final int DISPATCH_THREADS = Integer.getInteger("fingerprint.http.dispatchThreads", 4);
+
     /**
      * Application bootstrap.
      *
@@ -33,32 +45,94 @@ public class Main {
      * @throws Exception if server initialization fails
      */
     public static void main(String[] args) throws Exception {
+        start(PORT);
+
+        System.out.println(
+                "Fingerprint service running on port " + PORT
+        );
+    }
+
+    /**
+     * Starts the warm-up, loads the gallery and starts the HTTP server on the given port.
+     *
+     * <p>Also used to run the service in-process, e.g. by the load test;
+     * pass {@code 0} to bind an ephemeral port.</p>
+     *
+     * @param port TCP port to listen on
+     * @return the started server
+     * @throws Exception if server initialization fails
+     */
+    public static HttpServer start(int port) throws Exception {
+
+        // Warm extraction and matching up in the background; /ready reports when done
+        Warmup warmup = Warmup.shared();
+        warmup.start();
+
+        // Open the configured readers and watch for unplug/replug off the request path
+        DeviceSupervisor.shared().start();
+
+        // Map the persisted identification gallery; templates are parsed on first use
+        long galleryStart = System.currentTimeMillis();
+        FingerprintGallery gallery = FingerprintGallery.shared();
+        int galleryLoaded = gallery.load();
+
+        System.out.println(
+                "Gallery loaded: " + galleryLoaded + " templates, version " + gallery.version()
+                        + " in " + (System.currentTimeMillis() - galleryStart) + " ms"
+                        + (gallery.recoveredTornTail() ? " (damaged tail discarded)" : "")
+                        + (gallery.reclaimedBytes() > 0 ? " (compacted, " + gallery.reclaimedBytes() + " bytes reclaimed)" : "")
+        );
+
+        // Disable Nagle's algorithm; headers and body are separate writes and would
+        // otherwise wait for the client's delayed ACK (about 40 ms per response)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
 
         // Create embedded HTTP server
         HttpServer server = HttpServer.create(
-                new InetSocketAddress(PORT),
+                new InetSocketAddress(port),
                 0
         );
 
-        // Configure a fixed thread pool for handling HTTP requests
-        server.setExecutor(Executors.newFixedThreadPool(10));
+        // Server threads only parse requests and hand them to a bulkhead executor
+        server.setExecutor(Executors.newFixedThreadPool(DISPATCH_THREADS));
 
         // Health check endpoint used by external services (e.g. Go API)
-        server.createContext("/health", exchange -> {
+        server.createContext("/health", new BulkheadHandler(exchange -> {
             byte[] resp = "OK".getBytes();
             exchange.sendResponseHeaders(200, resp.length);
             exchange.getResponseBody().write(resp);
             exchange.close();
-        });
+        }, Bulkhead.control()));
 
-        // Fingerprint API endpoints
-        server.createContext("/fingerprint", new FingerprintController());
+        // Readiness check: 503 until the startup warm-up has finished
+        server.createContext("/ready", new BulkheadHandler(exchange -> {
+            boolean ready = warmup.ready();
+            byte[] resp = (ready ? "READY" : "WARMING_UP").getBytes();
+            exchange.sendResponseHeaders(ready ? 200 : 503, resp.length);
+            exchange.getResponseBody().write(resp);
+            exchange.close();
+        }, Bulkhead.control()));
+
+        // Fingerprint API endpoints, split between device, CPU and control bulkheads
+        server.createContext(
+                "/fingerprint",
+                new BulkheadHandler(new FingerprintController(), FingerprintController::bulkhead)
+        );
+
+        // Server-Sent Events stream of capture progress
+        server.createContext(
+                "/fingerprint/events",
+                new BulkheadHandler(new FingerprintEventController(), Bulkhead.events())
+        );
+
+        // Latency histograms and counters in the Prometheus text format
+        server.createContext("/metrics", new BulkheadHandler(new MetricsController(), Bulkhead.control()));
 
         // Start HTTP server
         server.start();
 
-        System.out.println(
-                "Fingerprint service running on port " + PORT
-        );
+        return server;
     }
 }
\ No newline at end of file
@@ -0,0 +1,170 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.executor;
+
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.ServiceBusyException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded executor isolating one kind of HTTP work from the others.
+ *
+ * <p>Each bulkhead has a fixed number of threads and a bounded queue; work
+ * arriving when both are full is rejected with a {@link ServiceBusyException}
+ * instead of waiting behind it, so stuck captures cannot starve matching
+ * or the health check.</p>
+ *
+ * <p>Sizes are system properties {@code fingerprint.executor.<name>.threads}
+ * and {@code fingerprint.executor.<name>.queue}; a queue of {@code 0} accepts
+ * work only when a thread is idle.</p>
+ */
+public final class Bulkhead {
+
+    private static final int CORES = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Device operations: init, capture and shutdown, which block on the reader;
+     * sized for a blocking capture and a status poll on each of four readers.
+     */
+    private static final Bulkhead DEVICE = new Bulkhead("device", 8, 16);
+
+    /**
+     * CPU-bound work: template parsing, matching, identification and enrollment.
+     */
+    private static final Bulkhead CPU = new Bulkhead("cpu", CORES, 64);
+
+    /**
+     * Control and observability endpoints: health, metrics and cache statistics.
+     */
+    private static final Bulkhead CONTROL = new Bulkhead("control", 2, 32);
+
+    /**
+     * Server-Sent Events streams, each holding its thread for the whole stream.
+     */
+    private static final Bulkhead EVENTS = new Bulkhead(
+            "events",
+            Integer.getInteger("fingerprint.events.maxStreams", 4),
+            0
+    );
+
+    private static final List<Bulkhead> ALL = Collections.unmodifiableList(
+            Arrays.asList(DEVICE, CPU, CONTROL, EVENTS)
+    );
+
+    private final String name;
+    private final int queueCapacity;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong rejected = new AtomicLong();
+
+    private Bulkhead(String name, int defaultThreads, int defaultQueue) {
+        String prefix = "fingerprint.executor." + name + ".";
+
+        int threads = Math.max(1, Integer.getInteger(prefix + "threads", defaultThreads));
+        int queue = Math.max(0, Integer.getInteger(prefix + "queue", defaultQueue));
+
+        BlockingQueue<Runnable> workQueue = queue == 0
+                ? new SynchronousQueue<>()
+                : new ArrayBlockingQueue<>(queue);
+
+        AtomicInteger sequence = new AtomicInteger();
+
+        this.name = name;
+        this.queueCapacity = queue;
+        this.executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0,
+                TimeUnit.MILLISECONDS,
+                workQueue,
+                runnable -> new Thread(runnable, "fingerprint-" + name + "-" + sequence.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    public static Bulkhead device() {
+        return DEVICE;
+    }
+
+    public static Bulkhead cpu() {
+        return CPU;
+    }
+
+    public static Bulkhead control() {
+        return CONTROL;
+    }
+
+    public static Bulkhead events() {
+        return EVENTS;
+    }
+
+    /**
+     * Returns every bulkhead, for metrics.
+     */
+    public static List<Bulkhead> all() {
+        return ALL;
+    }
+
+    /**
+     * Runs the task on this bulkhead, or fails when its threads and queue are full.
+     *
+     * @throws ServiceBusyException if the task was rejected
+     */
+    public void execute(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw new ServiceBusyException(name);
+        }
+    }
+
+    /**
+     * Returns the name used in configuration and metrics.
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Returns the number of worker threads.
+     */
+    public int threads() {
+        return executor.getMaximumPoolSize();
+    }
+
+    /**
+     * Returns the number of threads currently running a task.
+     */
+    public int active() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * Returns the number of tasks waiting for a thread.
+     */
+    public int queueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Returns the maximum number of tasks that may wait for a thread.
+     */
+    public int queueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Returns the number of tasks rejected since startup.
+     */
+    public long rejected() {
+        return rejected.get();
+    }
+}
@@ -0,0 +1,66 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.executor;
+
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.FingerprintException;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.metrics.Metrics;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.utils.HttpResponseUtil;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.util.function.Function;
+
+/**
+ * Hands each exchange to the {@link Bulkhead} that owns its kind of work.
+ *
+ * <p>The HTTP server threads only parse the request and dispatch it here;
+ * the wrapped handler then runs on the chosen bulkhead. When that bulkhead
+ * is full the request is answered at once with 503 {@code SERVICE_BUSY}
+ * and a {@code Retry-After} header.</p>
+ */
+public class BulkheadHandler implements HttpHandler {
+
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final HttpHandler handler;
+    private final Function<HttpExchange, Bulkhead> selector;
+
+    /**
+     * Runs every exchange of the handler on the same bulkhead.
+     */
+    public BulkheadHandler(HttpHandler handler, Bulkhead bulkhead) {
+        this(handler, exchange -> bulkhead);
+    }
+
+    /**
+     * Runs each exchange of the handler on the bulkhead chosen by the selector.
+     */
+    public BulkheadHandler(HttpHandler handler, Function<HttpExchange, Bulkhead> selector) {
+        this.handler = handler;
+        this.selector = selector;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            selector.apply(exchange).execute(() -> run(exchange));
+        } catch (FingerprintException e) {
+            Metrics.shared().error(e.getCode());
+
+            try {
+                exchange.getResponseHeaders().set("Retry-After", RETRY_AFTER_SECONDS);
+                HttpResponseUtil.sendFingerprintError(exchange, e);
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    private void run(HttpExchange exchange) {
+        try {
+            handler.handle(exchange);
+        } catch (IOException | RuntimeException e) {
+            // Handlers answer their own errors, so this only means the client went away
+            exchange.close();
+        }
+    }
+}
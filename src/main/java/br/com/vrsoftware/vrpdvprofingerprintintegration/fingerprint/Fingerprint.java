@@ -1,5 +1,6 @@
 package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint;
 
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.capture.CaptureListener;
 import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.model.FingerprintMatchResult;
 
 /**
@@ -53,4 +54,9 @@ public interface Fingerprint {
      * Returns the captured fingerprint template.
      */
     String fingerprintCaptured();
+
+    /**
+     * Registers the listener notified when the next capture finishes.
+     */
+    void setCaptureListener(CaptureListener listener);
 }
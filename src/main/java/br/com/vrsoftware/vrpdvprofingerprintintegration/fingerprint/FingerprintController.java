@@ -1,21 +1,46 @@
 package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint;
 
+import br.com.vrsoftware.vrpdvprofingerprintintegration.executor.Bulkhead;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.capture.CaptureSession;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.capture.CaptureSessionManager;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.capture.CaptureStatus;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.device.DeviceRegistry;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.device.DeviceSupervisor;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.FingerprintErrorCodes;
 import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.FingerprintException;
-import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.factory.FingerprintFactory;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.GalleryVersionConflictException;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.gallery.FingerprintGallery;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.gallery.GalleryImporter;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.gallery.FingerprintIdentifier;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.gallery.PrefilterReport;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.matching.BatchMatcher;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.matching.MatchingPool;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.model.FingerprintBatchMatchItem;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.model.FingerprintCandidate;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.model.FingerprintIdentifyResult;
 import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.model.FingerprintMatchResult;
 import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.model.FingerprintType;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.template.FingerprintTemplateCache;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.template.TemplateCodec;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.template.TemplateFormat;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.metrics.Metrics;
 import br.com.vrsoftware.vrpdvprofingerprintintegration.utils.StringParser;
 import br.com.vrsoftware.vrpdvprofingerprintintegration.utils.HttpResponseUtil;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.utils.RequestBody;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.machinezoo.sourceafis.FingerprintTemplate;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 
-import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -24,17 +49,62 @@ import java.util.Map;
  * <p>Exposes endpoints to initialize, capture, compare and
  * shutdown fingerprint devices.</p>
  *
+ * <p>Device endpoints take an optional {@code deviceId} query parameter
+ * naming the reader, as registered in the {@link DeviceRegistry}; without
+ * it the default reader is used.</p>
+ *
  * <p>Business logic is delegated to the fingerprint core layer.</p>
  */
 public class FingerprintController implements HttpHandler {
 
-    private static Fingerprint fingerprint = null;
+    /**
+     * Number of candidates returned by identification when not requested.
+     */
+    private static final int DEFAULT_TOP_K = 5;
+
+    /**
+     * Upper bound for a single raw binary template in a match request.
+     */
+    private static final int MAX_BINARY_TEMPLATE_BYTES = 64 * 1024;
+
+    /**
+     * Candidate fractions evaluated by the prefilter report when not requested.
+     */
+    private static final double[] DEFAULT_REPORT_FRACTIONS = {0.05, 0.1, 0.25, 0.5, 1};
+
+    /**
+     * Longest a single capture long-poll may wait, in milliseconds.
+     */
+    private static final long MAX_CAPTURE_WAIT_MS = Long.getLong("fingerprint.capture.maxWaitMs", 30_000);
+
+    /**
+     * Upper bound for a gallery delta body, which is held in memory until applied.
+     */
+    private static final long MAX_DELTA_BYTES = Long.getLong("fingerprint.gallery.maxDeltaBytes", 64L * 1024 * 1024);
+
+    private static final DeviceRegistry devices = DeviceRegistry.shared();
+
+    private static final DeviceSupervisor supervisor = DeviceSupervisor.shared();
+
+    private static final CaptureSessionManager captureSessions = new CaptureSessionManager();
+
+    private static final FingerprintGallery gallery = FingerprintGallery.shared();
+    private static final FingerprintIdentifier identifier = new FingerprintIdentifier(gallery);
+    private static final GalleryImporter importer = new GalleryImporter(gallery, MatchingPool.shared());
+
+    private static final BatchMatcher batchMatcher = new BatchMatcher();
+
+    private static final Metrics metrics = Metrics.shared();
 
     @Override
     public void handle(HttpExchange exchange) throws IOException {
 
         String path = exchange.getRequestURI().getPath();
-        String endpoint = HttpResponseUtil.extractEndpoint(path);
+        String[] route = HttpResponseUtil.extractRoute(exchange.getHttpContext().getPath(), path);
+        String endpoint = route.length > 0 ? route[0] : "";
+
+        long start = System.nanoTime();
+        metrics.requestStarted();
 
         try {
             switch (endpoint) {
@@ -44,14 +114,51 @@ public class FingerprintController implements HttpHandler {
                     initialize(exchange);
                     break;
 
-                // GET /fingerprint/capture
+                // GET /fingerprint/capture (blocking)
+                // POST /fingerprint/capture
+                // GET /fingerprint/capture/{id}?wait=ms
+                // DELETE /fingerprint/capture/{id}
                 case "capture":
-                    capture(exchange);
+                    capture(exchange, route);
                     break;
 
                 // POST /fingerprint/match
+                // POST /fingerprint/match/batch
                 case "match":
-                    match(exchange);
+                    if (route.length > 1 && "batch".equals(route[1])) {
+                        matchBatch(exchange);
+                    } else {
+                        match(exchange);
+                    }
+                    break;
+
+                // POST /fingerprint/identify
+                // POST /fingerprint/identify/report
+                case "identify":
+                    if (route.length > 1 && "report".equals(route[1])) {
+                        prefilterReport(exchange);
+                    } else {
+                        identify(exchange);
+                    }
+                    break;
+
+                // POST /fingerprint/enroll
+                case "enroll":
+                    enroll(exchange);
+                    break;
+
+                // PUT /fingerprint/gallery/{id}
+                // DELETE /fingerprint/gallery/{id}
+                // GET /fingerprint/gallery/version
+                // POST /fingerprint/gallery/delta?since=N
+                // POST /fingerprint/gallery/import
+                case "gallery":
+                    manageGallery(exchange, route);
+                    break;
+
+                // GET /fingerprint/cache
+                case "cache":
+                    cacheStats(exchange);
                     break;
 
                 // GET /fingerprint/shutdown
@@ -64,19 +171,91 @@ public class FingerprintController implements HttpHandler {
             }
 
         } catch (FingerprintException e) {
+            metrics.error(e.getCode());
             HttpResponseUtil.sendFingerprintError(exchange, e);
         } catch (Exception e) {
             HttpResponseUtil.sendError(exchange, e.getMessage());
         } finally {
             exchange.close();
+
+            metrics.requestFinished();
+            metrics.endpoint(metricName(route)).recordSince(start);
+        }
+    }
+
+    /**
+     * Returns the bulkhead a request runs on: device operations, CPU-bound
+     * template work, or control endpoints.
+     */
+    public static Bulkhead bulkhead(HttpExchange exchange) {
+        String[] route = HttpResponseUtil.extractRoute(
+                exchange.getHttpContext().getPath(),
+                exchange.getRequestURI().getPath()
+        );
+
+        if (route.length == 0) return Bulkhead.control();
+
+        switch (route[0]) {
+            case "init":
+            case "capture":
+            case "shutdown":
+                return Bulkhead.device();
+            case "gallery":
+                // Version checks are polled by every PDV and must not queue behind imports
+                return route.length > 1 && "version".equals(route[1]) ? Bulkhead.control() : Bulkhead.cpu();
+            case "match":
+            case "identify":
+            case "enroll":
+                return Bulkhead.cpu();
+            default:
+                return Bulkhead.control();
+        }
+    }
+
+    /**
+     * Returns the endpoint label used for the request latency metrics.
+     */
+    private static String metricName(String[] route) {
+        if (route.length == 0) return "unknown";
+
+        boolean nested = route.length > 1;
+
+        switch (route[0]) {
+            case "init":
+            case "enroll":
+            case "cache":
+            case "shutdown":
+                return route[0];
+            case "capture":
+                return nested ? "capture_session" : "capture";
+            case "match":
+                return nested && "batch".equals(route[1]) ? "match_batch" : "match";
+            case "identify":
+                return nested && "report".equals(route[1]) ? "identify_report" : "identify";
+            case "gallery":
+                if (!nested) return "unknown";
+
+                switch (route[1]) {
+                    case "version":
+                    case "delta":
+                    case "import":
+                        return "gallery_" + route[1];
+                    default:
+                        return "gallery_template";
+                }
+            default:
+                return "unknown";
         }
     }
 
     /**
-     * Initializes the fingerprint device.
+     * Initializes the fingerprint devices.
      *
-     * <p>Parses request parameters, creates the correct implementation
-     * and initializes the device.</p>
+     * <p>Parses request parameters and initializes every attached reader of
+     * the requested model, or only {@code deviceId} when given. Readers the
+     * supervisor already keeps open are returned at once. The ids of the
+     * connected readers are returned in {@code devices} and their state in
+     * {@code states}.</p>
      */
     private void initialize(HttpExchange exchange) throws IOException {
         Map<String, String> params = StringParser.parse(
@@ -86,11 +265,13 @@ public class FingerprintController implements HttpHandler {
         int modelId = Integer.parseInt(params.get("modelId"));
         FingerprintType type = FingerprintType.fromId(modelId);
 
-        if (fingerprint == null) fingerprint = FingerprintFactory.create(type);
+        List<String> connected;
 
         try {
-            fingerprint.initialize();
+            connected = supervisor.connect(type, params.get("deviceId"));
         } catch (Exception e) {
+            if (e instanceof FingerprintException) metrics.error(((FingerprintException) e).getCode());
+
             HttpResponseUtil.sendError(
                     exchange,
                     "Fingerprint device not connected"
@@ -101,6 +282,8 @@ public class FingerprintController implements HttpHandler {
 
         Map<String, Object> data = new HashMap<>();
         data.put("device", type.name());
+        data.put("devices", connected);
+        data.put("states", devices.states(connected));
 
         HttpResponseUtil.sendSuccess(
                 exchange,
@@ -112,23 +295,136 @@ public class FingerprintController implements HttpHandler {
 
 
     /**
-     * Captures a fingerprint template.
+     * Routes capture requests.
+     *
+     * <p>{@code POST} starts an asynchronous capture session and returns its
+     * id at once; {@code GET /capture/{id}} long-polls the session and
+     * {@code DELETE /capture/{id}} cancels it. A plain {@code GET /capture}
+     * keeps the original blocking behaviour for existing clients.</p>
+     */
+    private void capture(HttpExchange exchange, String[] route) throws Exception {
+        String method = exchange.getRequestMethod();
+
+        if (route.length > 1) {
+            if ("DELETE".equalsIgnoreCase(method)) {
+                cancelCapture(exchange, route[1]);
+            } else {
+                captureStatus(exchange, route[1]);
+            }
+
+            return;
+        }
+
+        if ("POST".equalsIgnoreCase(method)) {
+            startCapture(exchange);
+        } else {
+            captureBlocking(exchange);
+        }
+    }
+
+    /**
+     * Captures a fingerprint template, blocking until the session finishes.
      *
      * <p>Validates device state, starts capture and returns
-     * the captured template.</p>
+     * the captured template in the negotiated {@link TemplateFormat}.</p>
      */
-    private void capture(HttpExchange exchange) throws Exception{
-        fingerprint.startCapture();
+    private void captureBlocking(HttpExchange exchange) throws Exception {
+        Map<String, String> params = StringParser.parse(exchange.getRequestURI().getQuery());
+        TemplateFormat format = TemplateFormat.negotiate(exchange, params);
+
+        CaptureSession session = startSession(params.get("deviceId"));
+
+        // Pending sessions are expired by the session manager, which bounds this wait
+        if (session.await(Long.MAX_VALUE) != CaptureStatus.COMPLETED) {
+            // Already counted by the session manager when the session failed
+            HttpResponseUtil.sendFingerprintError(exchange, session.error());
+            return;
+        }
 
-        while(!fingerprint.hasFingerprintCapture()) {
-            Thread.sleep(50);
+        if (format == TemplateFormat.OCTET_STREAM) {
+            HttpResponseUtil.sendBinary(
+                    exchange,
+                    200,
+                    TemplateCodec.encode(session.template())
+            );
+
+            return;
         }
 
-        String fingerprintCaptured = fingerprint.fingerprintCaptured();
-        fingerprint.stopCapture();
+        Map<String, Object> data = new HashMap<>();
+        putTemplate(data, session.template(), format);
+        putSelection(data, session);
+
+        HttpResponseUtil.sendSuccess(
+                exchange,
+                200,
+                null,
+                data
+        );
+    }
+
+    /**
+     * Starts an asynchronous capture session and returns its id.
+     */
+    private void startCapture(HttpExchange exchange) throws Exception {
+        CaptureSession session = startSession(
+                StringParser.parse(exchange.getRequestURI().getQuery()).get("deviceId")
+        );
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("sessionId", session.id());
+        data.put("deviceId", session.deviceId());
+        data.put("status", session.status().name());
+
+        HttpResponseUtil.sendSuccess(
+                exchange,
+                202,
+                null,
+                data
+        );
+    }
+
+    /**
+     * Returns the state of a capture session, waiting up to
+     * {@code wait} milliseconds for it to finish.
+     *
+     * <p>Negative waits return at once and waits above
+     * {@code fingerprint.capture.maxWaitMs} are capped.</p>
+     */
+    private void captureStatus(HttpExchange exchange, String sessionId) throws Exception {
+        Map<String, String> params = StringParser.parse(
+                exchange.getRequestURI().getQuery()
+        );
+
+        CaptureSession session = requireSession(sessionId);
+
+        long waitMs = Math.max(0, longField(params, "wait", 0));
+        CaptureStatus status = session.await(Math.min(waitMs, MAX_CAPTURE_WAIT_MS));
+
+        TemplateFormat format = TemplateFormat.negotiate(exchange, params);
+
+        if (status == CaptureStatus.COMPLETED && format == TemplateFormat.OCTET_STREAM) {
+            HttpResponseUtil.sendBinary(
+                    exchange,
+                    200,
+                    TemplateCodec.encode(session.template())
+            );
+
+            return;
+        }
 
         Map<String, Object> data = new HashMap<>();
-        data.put("fingerprint", fingerprintCaptured);
+        data.put("sessionId", session.id());
+        data.put("deviceId", session.deviceId());
+        data.put("status", status.name());
+
+        if (status == CaptureStatus.COMPLETED) {
+            putTemplate(data, session.template(), format);
+            putSelection(data, session);
+        } else if (session.error() != null) {
+            data.put("code", session.error().getCode());
+            data.put("reason", session.error().getMessage());
+        }
 
         HttpResponseUtil.sendSuccess(
                 exchange,
@@ -138,21 +434,75 @@ public class FingerprintController implements HttpHandler {
         );
     }
 
+    /**
+     * Cancels a pending capture session.
+     */
+    private void cancelCapture(HttpExchange exchange, String sessionId) throws Exception {
+        requireSession(sessionId);
+        captureSessions.cancel(sessionId);
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("sessionId", sessionId);
+
+        HttpResponseUtil.sendSuccess(
+                exchange,
+                200,
+                "CANCELLED",
+                data
+        );
+    }
+
+    /**
+     * Adds a captured template to the response data in the requested format.
+     */
+    private static void putTemplate(Map<String, Object> data, String template, TemplateFormat format) {
+        if (format == TemplateFormat.BINARY) {
+            data.put("fingerprint", TemplateCodec.toBase64(template));
+            data.put("format", "binary");
+        } else {
+            data.put("fingerprint", template);
+        }
+    }
+
+    /**
+     * Adds the quality of the selected frame and why it was selected, when the reader reports them.
+     */
+    private static void putSelection(Map<String, Object> data, CaptureSession session) {
+        if (session.selection() == null) return;
+
+        data.put("quality", session.quality());
+        data.put("selection", session.selection().name());
+    }
+
     /**
      * Compares two fingerprint templates.
      *
      * <p>Extracts templates from the request and returns
-     * the match result.</p>
+     * the match result. Templates may be SourceAFIS JSON or base64
+     * binary; an {@code application/octet-stream} body carries both
+     * templates as raw binary, each prefixed by its 4-byte length.</p>
      */
     private void match(HttpExchange exchange) throws Exception {
-        String body = new String(readAllBytes(exchange.getRequestBody()), StandardCharsets.UTF_8);
+        String digitalCaptured;
+        String digitalToCompare;
 
-        JsonObject json = JsonParser.parseString(body).getAsJsonObject();
+        if (TemplateFormat.isOctetStream(exchange)) {
+            DataInputStream input = new DataInputStream(RequestBody.open(exchange));
 
-        String digitalCaptured = json.get("digitalCaptured").getAsString();
-        String digitalToCompare = json.get("digitalToCompare").getAsString();
+            digitalCaptured = readBinaryTemplate(input);
+            digitalToCompare = readBinaryTemplate(input);
+        } else {
+            Map<String, String> fields = RequestBody.readFields(exchange, "digitalCaptured", "digitalToCompare");
 
-        FingerprintMatchResult matchResult = fingerprint.match(
+            digitalCaptured = RequestBody.require(fields.get("digitalCaptured"), "digitalCaptured");
+            digitalToCompare = RequestBody.require(fields.get("digitalToCompare"), "digitalToCompare");
+        }
+
+        Fingerprint device = devices.require(devices.resolve(
+                StringParser.parse(exchange.getRequestURI().getQuery()).get("deviceId")
+        ));
+
+        FingerprintMatchResult matchResult = device.match(
                 digitalCaptured,
                 digitalToCompare
         );
@@ -170,34 +520,747 @@ public class FingerprintController implements HttpHandler {
     }
 
     /**
-     * Shuts down the fingerprint device and releases resources.
+     * Compares one fingerprint against a list of candidates.
+     *
+     * <p>Each candidate is either a template string or an object with an
+     * optional {@code id} and a {@code template}. Results come back in
+     * input order; a malformed candidate gets its own error code instead
+     * of failing the whole batch.</p>
+     */
+    private void matchBatch(HttpExchange exchange) throws Exception {
+        Map<String, String> fields = new HashMap<>();
+        List<String> ids = new ArrayList<>();
+        List<String> candidates = new ArrayList<>();
+
+        RequestBody.readObject(exchange, (name, reader) -> {
+            if ("digitalCaptured".equals(name)) {
+                fields.put(name, RequestBody.nextStringOrNull(reader));
+            } else if ("candidates".equals(name)) {
+                readCandidates(reader, ids, candidates);
+            } else {
+                reader.skipValue();
+            }
+        });
+
+        FingerprintTemplate probe = parseCachedTemplate(
+                RequestBody.require(fields.get("digitalCaptured"), "digitalCaptured")
+        );
+
+        List<FingerprintBatchMatchItem> items = batchMatcher.match(probe, ids, candidates);
+        List<Map<String, Object>> results = new ArrayList<>(items.size());
+
+        for (int i = 0; i < items.size(); i++) {
+            FingerprintBatchMatchItem item = items.get(i);
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("index", i);
+            if (item.id() != null) result.put("id", item.id());
+
+            if (item.result() != null) {
+                result.put("matched", item.result().matched());
+                result.put("score", item.result().score());
+            } else {
+                result.put("matched", false);
+                result.put("code", item.errorCode());
+            }
+
+            results.add(result);
+        }
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("results", results);
+
+        HttpResponseUtil.sendSuccess(
+                exchange,
+                200,
+                null,
+                data
+        );
+    }
+
+    /**
+     * Identifies a fingerprint against the enrolled gallery (1:N).
+     *
+     * <p>Accepts the probe template, an optional number of candidates
+     * ({@code topK}), an optional time budget in milliseconds
+     * ({@code timeoutMs}) and an optional score that ends the search
+     * immediately ({@code acceptScore}). {@code candidateFraction} overrides
+     * the share of the gallery, ranked by the prefilter index, that is
+     * fully matched.</p>
+     */
+    private void identify(HttpExchange exchange) throws Exception {
+        Map<String, String> fields = RequestBody.readFields(
+                exchange,
+                "digitalCaptured",
+                "topK",
+                "timeoutMs",
+                "acceptScore",
+                "candidateFraction"
+        );
+
+        FingerprintTemplate probe = parseCachedTemplate(
+                RequestBody.require(fields.get("digitalCaptured"), "digitalCaptured")
+        );
+
+        long topK = longField(fields, "topK", DEFAULT_TOP_K);
+        if (topK < 1) throw RequestBody.invalid("topK must be positive");
+
+        long timeoutMs = longField(fields, "timeoutMs", 0);
+        if (timeoutMs < 0) throw RequestBody.invalid("timeoutMs must not be negative");
+        double acceptScore = numberField(fields, "acceptScore", Double.NaN);
+        double candidateFraction = numberField(
+                fields,
+                "candidateFraction",
+                FingerprintIdentifier.DEFAULT_CANDIDATE_FRACTION
+        );
+
+        FingerprintIdentifyResult result = identifier.identify(
+                probe,
+                (int) Math.min(topK, FingerprintIdentifier.MAX_TOP_K),
+                timeoutMs,
+                acceptScore,
+                candidateFraction
+        );
+
+        List<Map<String, Object>> candidates = new ArrayList<>();
+
+        for (FingerprintCandidate candidate : result.candidates()) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("id", candidate.id());
+            item.put("score", candidate.score());
+            candidates.add(item);
+        }
+
+        boolean matched = !result.candidates().isEmpty()
+                && result.candidates().get(0).score() >= FingerprintIdentifier.MATCH_THRESHOLD;
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("matched", matched);
+        data.put("candidates", candidates);
+        data.put("compared", result.compared());
+        data.put("complete", result.complete());
+
+        HttpResponseUtil.sendSuccess(
+                exchange,
+                200,
+                null,
+                data
+        );
+    }
+
+    /**
+     * Measures prefilter recall and speed against a full gallery scan.
+     *
+     * <p>Takes a list of probe templates ({@code probes}) and the candidate
+     * fractions to evaluate ({@code fractions}).</p>
+     */
+    private void prefilterReport(HttpExchange exchange) throws Exception {
+        List<FingerprintTemplate> probes = new ArrayList<>();
+        List<Double> values = new ArrayList<>();
+
+        RequestBody.readObject(exchange, (name, reader) -> {
+            if ("probes".equals(name)) {
+                reader.beginArray();
+                while (reader.hasNext()) probes.add(parseCachedTemplate(reader.nextString()));
+                reader.endArray();
+            } else if ("fractions".equals(name)) {
+                reader.beginArray();
+                while (reader.hasNext()) values.add(reader.nextDouble());
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        });
+
+        double[] fractions = DEFAULT_REPORT_FRACTIONS;
+
+        if (!values.isEmpty()) {
+            fractions = new double[values.size()];
+
+            for (int i = 0; i < fractions.length; i++) {
+                fractions[i] = values.get(i);
+            }
+        }
+
+        PrefilterReport report = PrefilterReport.run(identifier, probes, fractions);
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+
+        for (PrefilterReport.Row row : report.rows()) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("fraction", row.fraction());
+            item.put("recall", row.recall());
+            item.put("averageMillis", row.averageMillis());
+            item.put("averageCompared", row.averageCompared());
+            item.put("speedup", row.speedup());
+            rows.add(item);
+        }
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("gallerySize", gallery.size());
+        data.put("probes", report.probes());
+        data.put("genuineProbes", report.genuine());
+        data.put("fractions", rows);
+
+        HttpResponseUtil.sendSuccess(
+                exchange,
+                200,
+                null,
+                data
+        );
+    }
+
+    /**
+     * Adds a template to the identification gallery.
+     */
+    private void enroll(HttpExchange exchange) throws Exception {
+        Map<String, String> fields = RequestBody.readFields(exchange, "id", "template");
+
+        String id = RequestBody.require(fields.get("id"), "id");
+        String template = RequestBody.require(fields.get("template"), "template");
+
+        long version = gallery.commit(Collections.singletonList(prepareEnrollment(id, template)));
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("id", id);
+        data.put("version", version);
+        data.put("gallerySize", gallery.size());
+
+        exchange.getResponseHeaders().set("ETag", etag(version));
+
+        HttpResponseUtil.sendSuccess(
+                exchange,
+                200,
+                "ENROLLED",
+                data
+        );
+    }
+
+    /**
+     * Returns the parsed template cache counters.
+     */
+    private void cacheStats(HttpExchange exchange) throws IOException {
+        FingerprintTemplateCache cache = FingerprintTemplateCache.shared();
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("hits", cache.hits());
+        data.put("misses", cache.misses());
+        data.put("evictions", cache.evictions());
+        data.put("size", cache.size());
+        data.put("usedBytes", cache.usedBytes());
+        data.put("maxBytes", cache.maxBytes());
+
+        HttpResponseUtil.sendSuccess(
+                exchange,
+                200,
+                null,
+                data
+        );
+    }
+
+    /**
+     * Routes gallery requests.
+     *
+     * <p>{@code PUT} and {@code DELETE /gallery/{id}} change one template;
+     * {@code GET /gallery/version} returns the gallery version as an ETag,
+     * {@code POST /gallery/delta} applies a batch of changes and
+     * {@code POST /gallery/import} enrolls a stream of records. Those three
+     * names are reserved and never taken as template ids.</p>
+     */
+    private void manageGallery(HttpExchange exchange, String[] route) throws Exception {
+        String method = exchange.getRequestMethod();
+
+        if (route.length != 2) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+
+        switch (route[1]) {
+            case "version":
+                galleryVersion(exchange);
+                return;
+            case "delta":
+                applyGalleryDelta(exchange);
+                return;
+            case "import":
+                importGallery(exchange);
+                return;
+            default:
+                break;
+        }
+
+        if ("PUT".equalsIgnoreCase(method)) {
+            putGalleryTemplate(exchange, route[1]);
+        } else if ("DELETE".equalsIgnoreCase(method)) {
+            deleteGalleryTemplate(exchange, route[1]);
+        } else {
+            exchange.sendResponseHeaders(405, -1);
+        }
+    }
+
+    /**
+     * Adds or replaces the template enrolled under {@code id}.
+     */
+    private void putGalleryTemplate(HttpExchange exchange, String id) throws Exception {
+        Map<String, String> fields = RequestBody.readFields(exchange, "template");
+        String template = RequestBody.require(fields.get("template"), "template");
+
+        long version = gallery.commit(Collections.singletonList(prepareEnrollment(id, template)));
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("id", id);
+        data.put("version", version);
+        data.put("gallerySize", gallery.size());
+
+        exchange.getResponseHeaders().set("ETag", etag(version));
+
+        HttpResponseUtil.sendSuccess(
+                exchange,
+                200,
+                "ENROLLED",
+                data
+        );
+    }
+
+    /**
+     * Removes the template enrolled under {@code id}.
+     *
+     * <p>Removing an id that is not enrolled succeeds with {@code removed}
+     * false and leaves the version unchanged, so retries are harmless.</p>
+     */
+    private void deleteGalleryTemplate(HttpExchange exchange, String id) throws Exception {
+        long removedVersion = gallery.remove(id);
+        boolean removed = removedVersion >= 0;
+        long version = removed ? removedVersion : gallery.version();
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("id", id);
+        data.put("removed", removed);
+        data.put("version", version);
+        data.put("gallerySize", gallery.size());
+
+        exchange.getResponseHeaders().set("ETag", etag(version));
+
+        HttpResponseUtil.sendSuccess(
+                exchange,
+                200,
+                removed ? "REMOVED" : "NOT_ENROLLED",
+                data
+        );
+    }
+
+    /**
+     * Returns the gallery version, with the version as the ETag.
+     *
+     * <p>A request whose {@code If-None-Match} holds the current ETag is
+     * answered with an empty 304, so clients can poll cheaply.</p>
+     */
+    private void galleryVersion(HttpExchange exchange) throws IOException {
+        if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            return;
+        }
+
+        long version = gallery.version();
+        String etag = etag(version);
+
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+
+        if (matchesETag(exchange.getRequestHeaders().getFirst("If-None-Match"), etag)) {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("version", version);
+        data.put("gallerySize", gallery.size());
+
+        HttpResponseUtil.sendSuccess(
+                exchange,
+                200,
+                null,
+                data
+        );
+    }
+
+    /**
+     * Applies the gallery changes made since version {@code since}.
+     *
+     * <p>The body holds {@code upserts} ({@code [{"id": ..., "template": ...}]}),
+     * {@code deletes} (ids) and an optional target {@code version}. Every
+     * template is validated before anything changes, and the delta is applied
+     * as a whole only if the gallery is still at {@code since}; otherwise it
+     * fails with HTTP 409 and the client must resync from the current version.</p>
+     */
+    private void applyGalleryDelta(HttpExchange exchange) throws Exception {
+        if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            return;
+        }
+
+        Map<String, String> params = StringParser.parse(exchange.getRequestURI().getQuery());
+        long since = parseVersion(RequestBody.require(params.get("since"), "since"), "since");
+
+        // Fail stale clients before parsing templates; applyDelta checks again atomically
+        long current = gallery.version();
+        if (current != since) throw new GalleryVersionConflictException(since, current);
+
+        List<FingerprintGallery.Enrollment> upserts = new ArrayList<>();
+        List<String> deletes = new ArrayList<>();
+        long[] target = {0};
+
+        RequestBody.readObject(exchange, MAX_DELTA_BYTES, (name, reader) -> {
+            switch (name) {
+                case "version":
+                    target[0] = parseVersion(reader.nextString(), "version");
+                    break;
+                case "upserts":
+                    readUpserts(reader, upserts);
+                    break;
+                case "deletes":
+                    reader.beginArray();
+                    while (reader.hasNext()) deletes.add(reader.nextString());
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        });
+
+        if (target[0] != 0 && target[0] <= since) {
+            throw RequestBody.invalid("Version must be greater than since");
+        }
+
+        long version = gallery.applyDelta(since, target[0], upserts, deletes);
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("previousVersion", since);
+        data.put("version", version);
+        data.put("upserted", upserts.size());
+        data.put("deleted", deletes.size());
+        data.put("gallerySize", gallery.size());
+
+        exchange.getResponseHeaders().set("ETag", etag(version));
+
+        HttpResponseUtil.sendSuccess(
+                exchange,
+                200,
+                "GALLERY_UPDATED",
+                data
+        );
+    }
+
+    /**
+     * Enrolls the records of a newline-delimited JSON body.
+     *
+     * <p>Each line holds {@code {"id": ..., "template": ...}}; the body may be
+     * chunked and is processed as it arrives, see {@link GalleryImporter}.
+     * Rejected records are listed in {@code errors} with their line number,
+     * next to the import totals and throughput.</p>
+     */
+    private void importGallery(HttpExchange exchange) throws Exception {
+        if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            return;
+        }
+
+        GalleryImporter.Result result;
+
+        try (InputStream body = RequestBody.open(exchange, GalleryImporter.MAX_BODY_BYTES)) {
+            result = importer.importFrom(body);
+        }
+
+        List<Map<String, Object>> errors = new ArrayList<>();
+
+        for (GalleryImporter.RecordError error : result.errors()) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("line", error.line());
+            item.put("id", error.id());
+            item.put("code", error.code());
+            item.put("reason", error.reason());
+            errors.add(item);
+        }
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("records", result.records());
+        data.put("imported", result.imported());
+        data.put("failed", result.failed());
+        data.put("batches", result.batches());
+        data.put("elapsedMs", result.elapsedMillis());
+        data.put("recordsPerSecond", Math.round(result.recordsPerSecond()));
+        data.put("errors", errors);
+        data.put("errorsTruncated", result.failed() > errors.size());
+        data.put("gallerySize", gallery.size());
+
+        HttpResponseUtil.sendSuccess(
+                exchange,
+                200,
+                "IMPORTED",
+                data
+        );
+    }
+
+    /**
+     * Shuts down the fingerprint devices and releases resources.
+     *
+     * <p>Only {@code deviceId} is shut down when given, otherwise every
+     * registered reader. The ids shut down are returned in {@code devices}.</p>
      */
     private void shutdown(HttpExchange exchange) throws Exception {
-        if (fingerprint != null) {
-            fingerprint.shutdown();
-            fingerprint = null;
+        String deviceId = StringParser.parse(exchange.getRequestURI().getQuery()).get("deviceId");
+
+        List<String> ids = deviceId == null
+                ? devices.ids()
+                : Collections.singletonList(devices.resolve(deviceId));
+
+        List<String> closed = new ArrayList<>();
+        Exception failure = null;
+
+        for (String id : ids) {
+            supervisor.release(id);
+            captureSessions.cancelActive(id);
+
+            Fingerprint device = devices.remove(id);
+            if (device == null) continue;
+
+            try {
+                device.shutdown();
+                closed.add(id);
+            } catch (Exception e) {
+                if (failure == null) failure = e;
+            }
         }
 
+        if (failure != null) throw failure;
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("devices", closed);
+
         HttpResponseUtil.sendSuccess(
                 exchange,
                 200,
                 "SHUTDOWN",
-                null
+                data
         );
     }
 
     /**
-     * Reads all bytes from an input stream.
+     * Starts a capture on the requested reader, or the default one when
+     * {@code deviceId} is {@code null}, failing when it is not initialized.
+     */
+    private static CaptureSession startSession(String deviceId) throws Exception {
+        String id = devices.resolve(deviceId);
+
+        return captureSessions.start(id, devices.require(id));
+    }
+
+    /**
+     * Returns the capture session with the given id, failing when unknown.
+     */
+    private static CaptureSession requireSession(String sessionId) {
+        CaptureSession session = captureSessions.get(sessionId);
+
+        if (session == null) {
+            throw new FingerprintException(
+                    FingerprintErrorCodes.CAPTURE_SESSION_NOT_FOUND,
+                    "Capture session not found"
+            );
+        }
+
+        return session;
+    }
+
+    /**
+     * Resolves a template received in a request through the shared cache.
+     */
+    private static FingerprintTemplate parseCachedTemplate(String template) {
+        try {
+            return FingerprintTemplateCache.shared().get(template);
+        } catch (Exception ex) {
+            throw new FingerprintException(
+                    FingerprintErrorCodes.INVALID_TEMPLATE,
+                    "Invalid fingerprint template"
+            );
+        }
+    }
+
+    /**
+     * Reads one length-prefixed binary template and returns it base64 encoded,
+     * the form accepted by the template cache.
+     */
+    private static String readBinaryTemplate(DataInputStream input) throws IOException {
+        int length = input.readInt();
+
+        if (length <= 0 || length > MAX_BINARY_TEMPLATE_BYTES) {
+            throw new FingerprintException(
+                    FingerprintErrorCodes.INVALID_TEMPLATE,
+                    "Invalid fingerprint template"
+            );
+        }
+
+        byte[] template = new byte[length];
+        input.readFully(template);
+
+        return Base64.getEncoder().encodeToString(template);
+    }
+
+    /**
+     * Reads the batch candidates, each a template string or an object with
+     * an optional {@code id} and a {@code template}.
+     *
+     * <p>A missing template is kept as an empty string so that the batch
+     * reports it as an invalid candidate instead of failing.</p>
+     */
+    private static void readCandidates(JsonReader reader, List<String> ids, List<String> candidates) throws IOException {
+        reader.beginArray();
+
+        while (reader.hasNext()) {
+            String id = null;
+            String template = null;
+
+            if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                reader.beginObject();
+
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+
+                    if ("id".equals(name)) {
+                        id = RequestBody.nextStringOrNull(reader);
+                    } else if ("template".equals(name)) {
+                        template = RequestBody.nextStringOrNull(reader);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+
+                reader.endObject();
+            } else if (reader.peek() == JsonToken.STRING) {
+                template = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+
+            ids.add(id);
+            candidates.add(template == null ? "" : template);
+        }
+
+        reader.endArray();
+    }
+
+    /**
+     * Reads the {@code upserts} array of a gallery delta, preparing each template.
+     */
+    private static void readUpserts(JsonReader reader, List<FingerprintGallery.Enrollment> upserts) throws IOException {
+        reader.beginArray();
+
+        while (reader.hasNext()) {
+            String id = null;
+            String template = null;
+
+            reader.beginObject();
+
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+
+                if ("id".equals(name)) {
+                    id = RequestBody.nextStringOrNull(reader);
+                } else if ("template".equals(name)) {
+                    template = RequestBody.nextStringOrNull(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+
+            reader.endObject();
+
+            upserts.add(prepareEnrollment(
+                    RequestBody.require(id, "upserts.id"),
+                    RequestBody.require(template, "upserts.template")
+            ));
+        }
+
+        reader.endArray();
+    }
+
+    /**
+     * Parses a template for the gallery, failing with {@code INVALID_TEMPLATE}.
+     */
+    private static FingerprintGallery.Enrollment prepareEnrollment(String id, String template) {
+        try {
+            return gallery.prepare(id, template);
+        } catch (FingerprintException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new FingerprintException(
+                    FingerprintErrorCodes.INVALID_TEMPLATE,
+                    "Invalid fingerprint template: " + id
+            );
+        }
+    }
+
+    /**
+     * Returns the ETag of a gallery version.
+     */
+    private static String etag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Indicates whether an {@code If-None-Match} header lists the given ETag.
+     */
+    private static boolean matchesETag(String header, String etag) {
+        if (header == null) return false;
+
+        for (String tag : header.split(",")) {
+            String value = tag.trim();
+            if (value.startsWith("W/")) value = value.substring(2);
+
+            if ("*".equals(value) || etag.equals(value)) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Parses a non-negative gallery version.
      */
-    private static byte[] readAllBytes(InputStream input) throws IOException {
-        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-        byte[] data = new byte[4096];
-        int nRead;
+    private static long parseVersion(String value, String name) {
+        try {
+            long version = Long.parseLong(value);
+            if (version >= 0) return version;
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+
+        throw RequestBody.invalid("Invalid version: " + name);
+    }
+
+    /**
+     * Returns an optional integer field, or the default when absent.
+     */
+    private static long longField(Map<String, String> fields, String name, long defaultValue) {
+        String value = fields.get(name);
+        if (value == null) return defaultValue;
 
-        while ((nRead = input.read(data, 0, data.length)) != -1) {
-            buffer.write(data, 0, nRead);
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw RequestBody.invalid("Invalid number: " + name);
         }
+    }
 
-        return buffer.toByteArray();
+    /**
+     * Returns an optional numeric field, or the default when absent.
+     */
+    private static double numberField(Map<String, String> fields, String name, double defaultValue) {
+        String value = fields.get(name);
+        if (value == null) return defaultValue;
+
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw RequestBody.invalid("Invalid number: " + name);
+        }
     }
 }
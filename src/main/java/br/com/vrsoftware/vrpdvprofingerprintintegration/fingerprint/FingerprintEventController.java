@@ -0,0 +1,92 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint;
+
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.capture.CaptureEvent;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.capture.CaptureEventBus;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.utils.HttpResponseUtil;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.utils.StringParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Server-Sent Events stream of capture lifecycle events.
+ *
+ * <p>{@code GET /fingerprint/events} keeps the connection open and pushes
+ * every {@link CaptureEvent} as it happens. The optional {@code sessionId}
+ * query parameter restricts the stream to a single capture session.</p>
+ */
+public class FingerprintEventController implements HttpHandler {
+
+    /**
+     * Interval between keep-alive comments on an idle stream.
+     */
+    private static final long KEEP_ALIVE_MS = 15_000;
+
+    /**
+     * Maximum simultaneous streams, since each one holds an events executor thread.
+     */
+    private static final int MAX_STREAMS = Integer.getInteger("fingerprint.events.maxStreams", 4);
+
+    private final CaptureEventBus events = CaptureEventBus.shared();
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (events.subscriberCount() >= MAX_STREAMS) {
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+
+            String sessionId = StringParser.parse(
+                    exchange.getRequestURI().getQuery()
+            ).get("sessionId");
+
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            exchange.sendResponseHeaders(200, 0);
+
+            OutputStream output = exchange.getResponseBody();
+
+            try (CaptureEventBus.Subscription subscription = events.subscribe()) {
+                write(output, ": connected\n\n");
+
+                while (!Thread.currentThread().isInterrupted()) {
+                    CaptureEvent event = subscription.poll(KEEP_ALIVE_MS);
+
+                    if (event == null) {
+                        write(output, ": keep-alive\n\n");
+                    } else if (sessionId == null || sessionId.equals(event.sessionId())) {
+                        write(output, format(event));
+                    }
+                }
+            }
+        } catch (IOException ignored) {
+            // Client disconnected
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static String format(CaptureEvent event) {
+        Map<String, Object> data = new HashMap<>(event.data());
+        data.put("type", event.type().name());
+        data.put("sessionId", event.sessionId());
+        data.put("timestamp", event.timestamp());
+
+        return "id: " + event.sequence() + "\n"
+                + "event: " + event.type().name() + "\n"
+                + "data: " + HttpResponseUtil.toJson(data) + "\n\n";
+    }
+
+    private static void write(OutputStream output, String chunk) throws IOException {
+        output.write(chunk.getBytes(StandardCharsets.UTF_8));
+        output.flush();
+    }
+}
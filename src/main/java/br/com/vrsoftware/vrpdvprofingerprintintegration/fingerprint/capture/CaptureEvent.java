@@ -0,0 +1,66 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.capture;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A single capture lifecycle event.
+ */
+public final class CaptureEvent {
+
+    private final long sequence;
+    private final CaptureEventType type;
+    private final String sessionId;
+    private final long timestamp;
+    private final Map<String, Object> data;
+
+    CaptureEvent(
+            long sequence,
+            CaptureEventType type,
+            String sessionId,
+            Map<String, Object> data
+    ) {
+        this.sequence = sequence;
+        this.type = type;
+        this.sessionId = sessionId;
+        this.timestamp = System.currentTimeMillis();
+        this.data = data == null
+                ? Collections.<String, Object>emptyMap()
+                : Collections.unmodifiableMap(data);
+    }
+
+    /**
+     * Returns the event number, increasing across all sessions.
+     */
+    public long sequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns the event type.
+     */
+    public CaptureEventType type() {
+        return type;
+    }
+
+    /**
+     * Returns the capture session the event belongs to.
+     */
+    public String sessionId() {
+        return sessionId;
+    }
+
+    /**
+     * Returns when the event happened, in epoch milliseconds.
+     */
+    public long timestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns event specific values, such as the image quality.
+     */
+    public Map<String, Object> data() {
+        return data;
+    }
+}
@@ -0,0 +1,88 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.capture;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fans capture lifecycle events out to streaming subscribers.
+ *
+ * <p>Each subscriber owns a bounded queue; when a slow client falls behind,
+ * its oldest events are dropped so publishers on the device threads never block.</p>
+ */
+public final class CaptureEventBus {
+
+    private static final int QUEUE_CAPACITY = 256;
+
+    private static final CaptureEventBus SHARED = new CaptureEventBus();
+
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Returns the bus shared by the capture sessions and the event stream endpoint.
+     */
+    public static CaptureEventBus shared() {
+        return SHARED;
+    }
+
+    /**
+     * Publishes an event to every subscriber.
+     */
+    public void publish(CaptureEventType type, String sessionId, Map<String, Object> data) {
+        if (subscriptions.isEmpty()) return;
+
+        CaptureEvent event = new CaptureEvent(sequence.incrementAndGet(), type, sessionId, data);
+
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    /**
+     * Registers a new subscriber. It must be closed when the client goes away.
+     */
+    public Subscription subscribe() {
+        Subscription subscription = new Subscription();
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Returns the number of connected subscribers.
+     */
+    public int subscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Queue of events delivered to a single client.
+     */
+    public final class Subscription implements AutoCloseable {
+
+        private final BlockingQueue<CaptureEvent> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+        /**
+         * Waits up to {@code timeoutMs} for the next event.
+         *
+         * @return the event, or {@code null} if none arrived in time
+         */
+        public CaptureEvent poll(long timeoutMs) throws InterruptedException {
+            return queue.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        }
+
+        private void offer(CaptureEvent event) {
+            while (!queue.offer(event)) {
+                queue.poll();
+            }
+        }
+
+        @Override
+        public void close() {
+            subscriptions.remove(this);
+        }
+    }
+}
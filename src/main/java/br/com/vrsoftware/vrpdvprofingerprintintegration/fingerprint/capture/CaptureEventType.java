@@ -0,0 +1,15 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.capture;
+
+/**
+ * Capture lifecycle events pushed to clients.
+ */
+public enum CaptureEventType {
+    CAPTURE_STARTED,
+    FINGER_DETECTED,
+    IMAGE_QUALITY,
+    EXTRACTION_STARTED,
+    TEMPLATE_READY,
+    TIMEOUT,
+    CANCELLED,
+    ERROR
+}
@@ -0,0 +1,45 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.capture;
+
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.FingerprintException;
+
+/**
+ * Receives the outcome of a capture started on a fingerprint device.
+ *
+ * <p>Callbacks run on the device's capture thread and must return quickly.</p>
+ */
+public interface CaptureListener {
+
+    /**
+     * Called when the reader detects a finger on the sensor.
+     */
+    default void onFingerDetected() {
+    }
+
+    /**
+     * Called for each frame whose quality is reported by the reader.
+     */
+    default void onImageQuality(int quality) {
+    }
+
+    /**
+     * Called when the frame to extract has been chosen, before extraction starts.
+     */
+    default void onSampleSelected(int quality, SelectionReason reason) {
+    }
+
+    /**
+     * Called when template extraction starts for an accepted frame.
+     */
+    default void onExtractionStarted() {
+    }
+
+    /**
+     * Called when a template has been extracted from the captured image.
+     */
+    void onTemplateReady(String template);
+
+    /**
+     * Called when the capture fails before producing a template.
+     */
+    void onCaptureFailed(FingerprintException error);
+}
@@ -0,0 +1,138 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.capture;
+
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.FingerprintException;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A single capture request and its eventual template.
+ *
+ * <p>Completion is signalled through a {@link CompletableFuture}, so callers
+ * wait on the outcome instead of polling the device.</p>
+ */
+public final class CaptureSession {
+
+    private final String id = UUID.randomUUID().toString();
+    private final String deviceId;
+    private final long createdAt = System.currentTimeMillis();
+    private final CompletableFuture<String> result = new CompletableFuture<>();
+
+    private volatile CaptureStatus status = CaptureStatus.PENDING;
+    private volatile FingerprintException error;
+    private volatile long finishedAt;
+    private volatile int quality = -1;
+    private volatile SelectionReason selection;
+
+    CaptureSession(String deviceId) {
+        this.deviceId = deviceId;
+    }
+
+    /**
+     * Returns the session identifier exposed to clients.
+     */
+    public String id() {
+        return id;
+    }
+
+    /**
+     * Returns the id of the reader running the capture.
+     */
+    public String deviceId() {
+        return deviceId;
+    }
+
+    /**
+     * Returns the current session status.
+     */
+    public CaptureStatus status() {
+        return status;
+    }
+
+    /**
+     * Returns the captured template, or {@code null} while not completed.
+     */
+    public String template() {
+        return status == CaptureStatus.COMPLETED ? result.getNow(null) : null;
+    }
+
+    /**
+     * Returns the quality of the frame the template was extracted from, or {@code -1} if unknown.
+     */
+    public int quality() {
+        return quality;
+    }
+
+    /**
+     * Returns why that frame was selected, or {@code null} if unknown.
+     */
+    public SelectionReason selection() {
+        return selection;
+    }
+
+    /**
+     * Returns the failure that ended the session, if any.
+     */
+    public FingerprintException error() {
+        return error;
+    }
+
+    /**
+     * Returns when the session was created, in epoch milliseconds.
+     */
+    public long createdAt() {
+        return createdAt;
+    }
+
+    /**
+     * Returns when the session left {@link CaptureStatus#PENDING},
+     * in epoch milliseconds, or {@code 0} while pending.
+     */
+    public long finishedAt() {
+        return finishedAt;
+    }
+
+    /**
+     * Waits up to {@code waitMs} milliseconds for the session to finish.
+     *
+     * @return the status after waiting
+     */
+    public CaptureStatus await(long waitMs) throws InterruptedException {
+        if (waitMs <= 0) return status;
+
+        try {
+            result.get(waitMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException ignored) {
+            // Outcome is reported through the status
+        }
+
+        return status;
+    }
+
+    void select(int quality, SelectionReason selection) {
+        this.quality = quality;
+        this.selection = selection;
+    }
+
+    synchronized boolean complete(String template) {
+        if (status != CaptureStatus.PENDING) return false;
+
+        finishedAt = System.currentTimeMillis();
+        status = CaptureStatus.COMPLETED;
+        result.complete(template);
+        return true;
+    }
+
+    synchronized boolean fail(CaptureStatus finalStatus, FingerprintException cause) {
+        if (status != CaptureStatus.PENDING) return false;
+
+        finishedAt = System.currentTimeMillis();
+        error = cause;
+        status = finalStatus;
+        result.completeExceptionally(cause);
+        return true;
+    }
+}
@@ -0,0 +1,267 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.capture;
+
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.Fingerprint;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.FingerprintErrorCodes;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.FingerprintException;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.metrics.Metrics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks capture sessions and expires them on the server side.
+ *
+ * <p>Each reader captures one finger at a time, so starting a capture while
+ * another session is pending on the same reader joins the pending session;
+ * sessions on different readers run in parallel. Pending sessions
+ * expire after {@code fingerprint.capture.timeoutMs} and finished sessions
+ * are kept for {@code fingerprint.capture.retentionMs} so clients can
+ * still fetch their result.</p>
+ *
+ * <p>Lifecycle changes are published on the {@link CaptureEventBus}.</p>
+ */
+public final class CaptureSessionManager {
+
+    private static final long DEFAULT_TIMEOUT_MS = 60_000;
+    private static final long DEFAULT_RETENTION_MS = 60_000;
+    private static final long SWEEP_INTERVAL_MS = 1_000;
+
+    private final long timeoutMs = Long.getLong("fingerprint.capture.timeoutMs", DEFAULT_TIMEOUT_MS);
+    private final long retentionMs = Long.getLong("fingerprint.capture.retentionMs", DEFAULT_RETENTION_MS);
+
+    private final Map<String, CaptureSession> sessions = new ConcurrentHashMap<>();
+    private final CaptureEventBus events = CaptureEventBus.shared();
+    private final Metrics metrics = Metrics.shared();
+    private final ScheduledExecutorService sweeper;
+
+    /**
+     * Pending session and its device, by device id.
+     */
+    private final Map<String, CaptureSession> active = new HashMap<>();
+    private final Map<String, Fingerprint> activeDevices = new HashMap<>();
+
+    public CaptureSessionManager() {
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "CaptureSessionSweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        sweeper.scheduleWithFixedDelay(
+                this::sweep,
+                SWEEP_INTERVAL_MS,
+                SWEEP_INTERVAL_MS,
+                TimeUnit.MILLISECONDS
+        );
+    }
+
+    /**
+     * Starts a capture on the device, or returns the session already pending on it.
+     */
+    public synchronized CaptureSession start(String deviceId, Fingerprint device) throws Exception {
+        CaptureSession pending = active.get(deviceId);
+        if (pending != null && pending.status() == CaptureStatus.PENDING) return pending;
+
+        CaptureSession session = new CaptureSession(deviceId);
+        device.setCaptureListener(new SessionListener(session));
+
+        sessions.put(session.id(), session);
+        active.put(deviceId, session);
+        activeDevices.put(deviceId, device);
+
+        try {
+            device.startCapture();
+        } catch (Exception e) {
+            sessions.remove(session.id());
+            active.remove(deviceId);
+            activeDevices.remove(deviceId);
+            throw e;
+        }
+
+        events.publish(
+                CaptureEventType.CAPTURE_STARTED,
+                session.id(),
+                Collections.<String, Object>singletonMap("deviceId", deviceId)
+        );
+
+        return session;
+    }
+
+    /**
+     * Returns the session with the given id, or {@code null} if unknown or expired.
+     */
+    public CaptureSession get(String id) {
+        return sessions.get(id);
+    }
+
+    /**
+     * Cancels a pending session and stops the device capture.
+     *
+     * @return {@code false} if the session does not exist
+     */
+    public boolean cancel(String id) {
+        CaptureSession session = sessions.get(id);
+        if (session == null) return false;
+
+        boolean cancelled = session.fail(
+                CaptureStatus.CANCELLED,
+                new FingerprintException(
+                        FingerprintErrorCodes.CAPTURE_CANCELLED,
+                        "Capture cancelled"
+                )
+        );
+
+        if (cancelled) {
+            metrics.error(FingerprintErrorCodes.CAPTURE_CANCELLED);
+            events.publish(CaptureEventType.CANCELLED, session.id(), null);
+            stopDevice(session);
+        }
+
+        return true;
+    }
+
+    /**
+     * Cancels the session pending on a device, if any. Used before shutting it down.
+     */
+    public void cancelActive(String deviceId) {
+        CaptureSession session;
+
+        synchronized (this) {
+            session = active.get(deviceId);
+        }
+
+        if (session != null) cancel(session.id());
+    }
+
+    /**
+     * Expires pending sessions past their timeout and drops old finished sessions.
+     */
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        Iterator<CaptureSession> it = sessions.values().iterator();
+
+        while (it.hasNext()) {
+            CaptureSession session = it.next();
+
+            if (session.status() == CaptureStatus.PENDING) {
+                if (now - session.createdAt() < timeoutMs) continue;
+
+                boolean expired = session.fail(
+                        CaptureStatus.EXPIRED,
+                        new FingerprintException(
+                                FingerprintErrorCodes.CAPTURE_TIMEOUT,
+                                "Capture timed out"
+                        )
+                );
+
+                if (expired) {
+                    metrics.error(FingerprintErrorCodes.CAPTURE_TIMEOUT);
+                    events.publish(CaptureEventType.TIMEOUT, session.id(), null);
+                    stopDevice(session);
+                }
+            } else if (now - session.finishedAt() >= retentionMs) {
+                it.remove();
+            }
+        }
+    }
+
+    private void stopDevice(CaptureSession session) {
+        Fingerprint device;
+
+        synchronized (this) {
+            if (active.get(session.deviceId()) != session) return;
+
+            device = activeDevices.remove(session.deviceId());
+            active.remove(session.deviceId());
+        }
+
+        try {
+            device.stopCapture();
+        } catch (Exception ignored) {
+            // The device may already be shut down
+        }
+    }
+
+    /**
+     * Completes a session from the device capture thread.
+     */
+    private final class SessionListener implements CaptureListener {
+
+        private final CaptureSession session;
+
+        SessionListener(CaptureSession session) {
+            this.session = session;
+        }
+
+        @Override
+        public void onFingerDetected() {
+            events.publish(CaptureEventType.FINGER_DETECTED, session.id(), null);
+        }
+
+        @Override
+        public void onImageQuality(int quality) {
+            events.publish(
+                    CaptureEventType.IMAGE_QUALITY,
+                    session.id(),
+                    Collections.<String, Object>singletonMap("quality", quality)
+            );
+        }
+
+        @Override
+        public void onSampleSelected(int quality, SelectionReason reason) {
+            session.select(quality, reason);
+        }
+
+        @Override
+        public void onExtractionStarted() {
+            events.publish(CaptureEventType.EXTRACTION_STARTED, session.id(), null);
+        }
+
+        @Override
+        public void onTemplateReady(String template) {
+            if (session.complete(template)) {
+                Map<String, Object> data = null;
+
+                if (session.selection() != null) {
+                    data = new HashMap<>();
+                    data.put("quality", session.quality());
+                    data.put("selection", session.selection().name());
+                }
+
+                events.publish(CaptureEventType.TEMPLATE_READY, session.id(), data);
+            }
+
+            release();
+        }
+
+        @Override
+        public void onCaptureFailed(FingerprintException error) {
+            if (session.fail(CaptureStatus.FAILED, error)) {
+                metrics.error(error.getCode());
+
+                Map<String, Object> data = new HashMap<>();
+                data.put("code", error.getCode());
+                data.put("reason", error.getMessage());
+
+                events.publish(CaptureEventType.ERROR, session.id(), data);
+            }
+
+            release();
+        }
+
+        private void release() {
+            synchronized (CaptureSessionManager.this) {
+                if (active.get(session.deviceId()) != session) return;
+
+                active.remove(session.deviceId());
+                activeDevices.remove(session.deviceId());
+            }
+        }
+    }
+}
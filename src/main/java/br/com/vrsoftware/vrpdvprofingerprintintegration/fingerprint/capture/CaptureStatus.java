@@ -0,0 +1,12 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.capture;
+
+/**
+ * Lifecycle states of a capture session.
+ */
+public enum CaptureStatus {
+    PENDING,
+    COMPLETED,
+    FAILED,
+    CANCELLED,
+    EXPIRED
+}
@@ -0,0 +1,27 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.capture;
+
+/**
+ * Why a capture kept the frame it extracted the template from.
+ */
+public enum SelectionReason {
+
+    /**
+     * The frame reached the high-quality threshold, ending the capture early.
+     */
+    HIGH_QUALITY,
+
+    /**
+     * The best of the acceptable frames allowed per capture.
+     */
+    FRAME_BUDGET,
+
+    /**
+     * The best frame seen before the time allowed after the first acceptable frame ran out.
+     */
+    TIME_BUDGET,
+
+    /**
+     * The best frame seen before the reader ended the capture by itself.
+     */
+    CAPTURE_END
+}
@@ -0,0 +1,91 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.device;
+
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.capture.CaptureListener;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A single capture run by a {@link DeviceActor}.
+ *
+ * <p>Keeps the listener registered when the capture was requested, so
+ * callbacks of a cancelled capture never reach the session that replaced
+ * it. Cancellation is a latch the device thread can wait on instead of
+ * sleeping, and {@link #finished()} completes once the device thread has
+ * left the SDK call.</p>
+ */
+public final class CaptureAttempt {
+
+    private final CaptureListener listener;
+    private final long startNanos = System.nanoTime();
+    private final CountDownLatch cancelled = new CountDownLatch(1);
+    private final CompletableFuture<Void> finished = new CompletableFuture<>();
+
+    CaptureAttempt(CaptureListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the listener notified about this capture; never {@code null}.
+     */
+    public CaptureListener listener() {
+        return listener;
+    }
+
+    /**
+     * Returns the {@link System#nanoTime()} at which the capture was requested.
+     */
+    public long startNanos() {
+        return startNanos;
+    }
+
+    /**
+     * Returns whether the capture was cancelled or the device is shutting down.
+     */
+    public boolean cancelled() {
+        return cancelled.getCount() == 0;
+    }
+
+    /**
+     * Waits up to the given time, returning early when the capture is cancelled.
+     *
+     * @return {@code true} if the capture was cancelled
+     */
+    public boolean awaitCancel(long millis) throws InterruptedException {
+        return cancelled.await(millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Completes once the device thread is done with this capture.
+     */
+    public CompletableFuture<Void> finished() {
+        return finished;
+    }
+
+    void cancel() {
+        cancelled.countDown();
+    }
+
+    void finish() {
+        finished.complete(null);
+    }
+
+    /**
+     * Waits for the device thread to leave this capture.
+     *
+     * @return {@code false} if it was still running after the timeout
+     */
+    boolean awaitFinished(long millis) throws InterruptedException {
+        try {
+            finished.get(millis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (ExecutionException e) {
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        }
+    }
+}
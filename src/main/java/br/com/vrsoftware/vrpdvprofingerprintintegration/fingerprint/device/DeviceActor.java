@@ -0,0 +1,420 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.device;
+
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.Fingerprint;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.capture.CaptureListener;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.FingerprintErrorCodes;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.FingerprintException;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.model.FingerprintMatchResult;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.template.FingerprintTemplateCache;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.metrics.CaptureStage;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.metrics.Metrics;
+import com.machinezoo.sourceafis.FingerprintMatcher;
+import com.machinezoo.sourceafis.FingerprintTemplate;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Base class running every SDK call of a device on one dedicated thread.
+ *
+ * <p>Initialization, captures and shutdown are commands queued to the
+ * device thread and answered through futures, so vendor SDKs never see
+ * concurrent calls. The {@link DeviceState} is a lock-free state machine
+ * shared by the callers and the device thread; a capture's result is only
+ * published if its {@code CAPTURING -> READY} transition wins, which means
+ * a cancelled capture can never overwrite a newer one.</p>
+ *
+ * <p>Cancel and shutdown flag the running {@link CaptureAttempt} and call
+ * {@link #abortCapture()} to unblock the SDK, then wait only until the
+ * device thread returns from it.</p>
+ */
+public abstract class DeviceActor implements Fingerprint {
+
+    /**
+     * Longest {@code stopCapture} waits for the SDK to return, in milliseconds.
+     */
+    private static final long STOP_TIMEOUT_MS = Long.getLong("fingerprint.device.stopTimeoutMs", 5_000);
+
+    /**
+     * Longest {@link #alive()} waits for the reader to answer, in milliseconds.
+     */
+    private static final long PROBE_TIMEOUT_MS = Long.getLong("fingerprint.device.probeTimeoutMs", 2_000);
+
+    private static final CaptureListener NO_LISTENER = new CaptureListener() {
+        @Override
+        public void onTemplateReady(String template) {
+        }
+
+        @Override
+        public void onCaptureFailed(FingerprintException error) {
+        }
+    };
+
+    protected final Metrics metrics = Metrics.shared();
+
+    private final AtomicReference<DeviceState> state = new AtomicReference<>(DeviceState.CLOSED);
+    private final ExecutorService commands;
+
+    private volatile CaptureListener captureListener;
+    private volatile CaptureAttempt attempt;
+    private volatile FingerprintTemplate captured;
+
+    private boolean connectedBefore = false;
+
+    /**
+     * Creates the actor and its device thread, named after the device.
+     */
+    protected DeviceActor(String name) {
+        commands = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Device - " + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Initializes the SDK and connects to the reader. Runs on the device thread.
+     */
+    protected abstract void open() throws Exception;
+
+    /**
+     * Disconnects from the reader and releases the SDK. Runs on the device thread.
+     */
+    protected abstract void close() throws Exception;
+
+    /**
+     * Captures one fingerprint. Runs on the device thread.
+     *
+     * @return the extracted template, or {@code null} if the attempt was cancelled
+     */
+    protected abstract FingerprintTemplate capture(CaptureAttempt attempt) throws Exception;
+
+    /**
+     * Asks the SDK to return from a blocking capture call. Called from other threads.
+     */
+    protected void abortCapture() {
+    }
+
+    /**
+     * Checks that the reader still answers. Runs on the device thread while idle.
+     *
+     * @return {@code false} if the reader was unplugged
+     */
+    protected boolean probe() throws Exception {
+        return true;
+    }
+
+    /**
+     * Counts the readers of this kind attached to the machine. Runs on the device thread while idle.
+     *
+     * @return the number of readers, or {@code -1} if the SDK cannot enumerate them
+     */
+    protected int enumerate() throws Exception {
+        return -1;
+    }
+
+    /**
+     * Returns the current lifecycle state.
+     */
+    public DeviceState state() {
+        return state.get();
+    }
+
+    /**
+     * Returns whether the reader is open and answers its {@link #probe()}.
+     *
+     * <p>A reader busy with a capture is not probed; a failing capture
+     * reports itself.</p>
+     */
+    public boolean alive() {
+        DeviceState current = state.get();
+
+        if (current == DeviceState.ARMED || current == DeviceState.CAPTURING) return true;
+        if (current != DeviceState.IDLE && current != DeviceState.READY) return false;
+
+        try {
+            return submit(this::probe).get(PROBE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Queued behind a capture started meanwhile
+            DeviceState now = state.get();
+            return now == DeviceState.ARMED || now == DeviceState.CAPTURING;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Enumerates the attached readers of this kind on the device thread.
+     *
+     * <p>A reader busy with a capture is not asked, so the SDK never sees an
+     * enumeration during a capture.</p>
+     *
+     * @return the number of readers, or {@code -1} if busy or unknown
+     */
+    public int attachedReaders() {
+        DeviceState current = state.get();
+        if (current != DeviceState.IDLE && current != DeviceState.READY) return -1;
+
+        try {
+            return submit(this::enumerate).get(PROBE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Releases the SDK and the device thread of a reader whose {@link #initialize()} failed.
+     */
+    public void discard() {
+        if (state.get() != DeviceState.CLOSED) return;
+
+        try {
+            commands.execute(() -> {
+                try {
+                    close();
+                } catch (Exception ignored) {
+                    // Nothing was opened
+                }
+            });
+        } catch (RejectedExecutionException ignored) {
+            // Already discarded
+        }
+
+        commands.shutdown();
+    }
+
+    @Override
+    public boolean hasFingerprintCapture() {
+        return captured != null;
+    }
+
+    @Override
+    public String fingerprintCaptured() {
+        FingerprintTemplate template = captured;
+
+        return template == null ? "" : template.json();
+    }
+
+    @Override
+    public void setCaptureListener(CaptureListener listener) {
+        captureListener = listener;
+    }
+
+    @Override
+    public void initialize() throws Exception {
+        if (state.get() != DeviceState.CLOSED) return;
+
+        await(submit(() -> {
+            if (state.get() != DeviceState.CLOSED) return null;
+
+            open();
+            state.set(DeviceState.IDLE);
+
+            if (connectedBefore) metrics.reconnected();
+            connectedBefore = true;
+
+            return null;
+        }));
+    }
+
+    @Override
+    public void startCapture() {
+        CaptureListener listener = captureListener;
+        CaptureAttempt next = new CaptureAttempt(listener == null ? NO_LISTENER : listener);
+
+        while (true) {
+            DeviceState current = state.get();
+
+            // A capture in progress is joined, as before
+            if (current == DeviceState.ARMED || current == DeviceState.CAPTURING) return;
+
+            if (current != DeviceState.IDLE && current != DeviceState.READY) {
+                throw notConnected();
+            }
+
+            if (state.compareAndSet(current, DeviceState.ARMED)) break;
+        }
+
+        captured = null;
+        attempt = next;
+
+        try {
+            commands.execute(() -> runCapture(next));
+        } catch (RejectedExecutionException e) {
+            state.compareAndSet(DeviceState.ARMED, DeviceState.IDLE);
+            throw notConnected();
+        }
+    }
+
+    @Override
+    public void stopCapture() throws Exception {
+        CaptureAttempt running = attempt;
+        if (running == null) return;
+
+        running.cancel();
+
+        boolean stopped = state.compareAndSet(DeviceState.ARMED, DeviceState.IDLE)
+                || state.compareAndSet(DeviceState.CAPTURING, DeviceState.IDLE);
+
+        if (stopped) {
+            captured = null;
+            abortCapture();
+            running.awaitFinished(STOP_TIMEOUT_MS);
+        }
+    }
+
+    @Override
+    public void shutdown() throws Exception {
+        DeviceState previous = state.getAndUpdate(
+                current -> current == DeviceState.CLOSED ? current : DeviceState.CLOSING
+        );
+
+        if (previous == DeviceState.CLOSED || previous == DeviceState.CLOSING) throw notConnected();
+
+        CaptureAttempt running = attempt;
+
+        if (running != null) {
+            running.cancel();
+            abortCapture();
+
+            // A pending capture is failed, so its session does not wait for a timeout
+            if (previous == DeviceState.ARMED || previous == DeviceState.CAPTURING) {
+                running.listener().onCaptureFailed(notConnected());
+            }
+        }
+
+        try {
+            // Queued behind the capture, so this runs as soon as the SDK returns
+            await(submit(() -> {
+                close();
+                return null;
+            }));
+        } finally {
+            captured = null;
+            state.set(DeviceState.CLOSED);
+            commands.shutdown();
+        }
+    }
+
+    @Override
+    public FingerprintMatchResult match(String capturedTemplate, String storedTemplate) {
+        try {
+            FingerprintTemplateCache cache = FingerprintTemplateCache.shared();
+
+            FingerprintTemplate fpCaptured = cache.get(capturedTemplate);
+            FingerprintTemplate fpStored = cache.get(storedTemplate);
+
+            long start = System.nanoTime();
+            FingerprintMatcher fm = new FingerprintMatcher(fpCaptured);
+
+            double score = fm.match(fpStored);
+            metrics.stage(CaptureStage.MATCH).recordSince(start);
+
+            int margin = 10;
+
+            double threshold = Fingerprint.DEFAULT_THRESHOLD - margin;
+            boolean matched = score >= threshold;
+
+            return new FingerprintMatchResult(matched, score);
+        } catch (Exception ex) {
+            throw new FingerprintException(
+                    FingerprintErrorCodes.MATCH_FAILED,
+                    "Fingerprint match failed"
+            );
+        }
+    }
+
+    /**
+     * Runs one capture on the device thread and publishes its outcome.
+     */
+    private void runCapture(CaptureAttempt current) {
+        try {
+            if (current.cancelled() || !state.compareAndSet(DeviceState.ARMED, DeviceState.CAPTURING)) return;
+
+            FingerprintTemplate template;
+
+            try {
+                template = capture(current);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                template = null;
+            } catch (Exception e) {
+                if (state.compareAndSet(DeviceState.CAPTURING, DeviceState.IDLE)) {
+                    current.listener().onCaptureFailed(
+                            e instanceof FingerprintException
+                                    ? (FingerprintException) e
+                                    : new FingerprintException(FingerprintErrorCodes.CAPTURE_FAILED, "Capture failed")
+                    );
+                }
+
+                return;
+            }
+
+            if (template == null || current.cancelled()) {
+                state.compareAndSet(DeviceState.CAPTURING, DeviceState.IDLE);
+                return;
+            }
+
+            if (state.compareAndSet(DeviceState.CAPTURING, DeviceState.READY)) {
+                captured = template;
+                current.listener().onTemplateReady(template.json());
+            }
+        } finally {
+            current.finish();
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(Callable<T> command) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+
+        try {
+            commands.execute(() -> {
+                try {
+                    result.complete(command.call());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            throw notConnected();
+        }
+
+        return result;
+    }
+
+    /**
+     * Waits for a device command, rethrowing its failure as is.
+     */
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof Exception) throw (Exception) cause;
+            if (cause instanceof Error) throw (Error) cause;
+
+            throw e;
+        }
+    }
+
+    private static FingerprintException notConnected() {
+        return new FingerprintException(
+                FingerprintErrorCodes.READER_NOT_CONNECTED,
+                "Unable to connect to reader"
+        );
+    }
+}
@@ -0,0 +1,220 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.device;
+
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.Fingerprint;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.FingerprintErrorCodes;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.FingerprintException;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.factory.FingerprintFactory;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.model.FingerprintType;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Readers connected to this service, keyed by device id.
+ *
+ * <p>Ids are {@code <type>-<index>}, e.g. {@code hamster-1}, where the index
+ * is the reader's position in the SDK enumeration. Requests that name no
+ * device use the first registered id in sort order, so single-reader
+ * installations keep working without passing a {@code deviceId}.</p>
+ */
+public final class DeviceRegistry {
+
+    private static final DeviceRegistry SHARED = new DeviceRegistry();
+
+    private final Map<String, Fingerprint> devices = new ConcurrentSkipListMap<>();
+
+    private DeviceRegistry() {
+    }
+
+    /**
+     * Returns the registry shared by the whole service.
+     */
+    public static DeviceRegistry shared() {
+        return SHARED;
+    }
+
+    /**
+     * Initializes the attached readers of a type and registers them.
+     *
+     * <p>With a {@code deviceId}, only that reader is initialized. Readers
+     * already registered are initialized again, which is a no-op while
+     * they are connected.</p>
+     *
+     * <p>While a reader of the type is capturing, the attached readers cannot
+     * be enumerated; only the registered ones are initialized then.</p>
+     *
+     * @return the ids of the readers now connected
+     * @throws Exception the failure of the last reader when none could be initialized
+     */
+    public synchronized List<String> connect(FingerprintType type, String deviceId) throws Exception {
+        int count = attached(type);
+
+        if (count < 0) {
+            for (String id : ids(type)) {
+                count = Math.max(count, FingerprintFactory.deviceIndex(type, id) + 1);
+            }
+        }
+        List<String> connected = new ArrayList<>();
+        Exception failure = null;
+
+        for (int i = 0; i < count; i++) {
+            String id = FingerprintFactory.deviceId(type, i);
+            if (deviceId != null && !deviceId.equals(id)) continue;
+
+            Fingerprint registered = devices.get(id);
+            Fingerprint device = registered == null ? FingerprintFactory.create(type, i) : registered;
+
+            try {
+                device.initialize();
+            } catch (Exception e) {
+                if (registered == null && device instanceof DeviceActor) ((DeviceActor) device).discard();
+
+                failure = e;
+                continue;
+            }
+
+            devices.put(id, device);
+            connected.add(id);
+        }
+
+        if (connected.isEmpty()) {
+            if (failure != null) throw failure;
+
+            throw new FingerprintException(
+                    FingerprintErrorCodes.SDK_INIT_FAILED,
+                    "Unable to initialize fingerprint reader"
+            );
+        }
+
+        return connected;
+    }
+
+    /**
+     * Returns how many readers of a type are attached.
+     *
+     * <p>When readers of the type are open, the enumeration runs on the
+     * device thread of one of them, so the SDK is only ever called from
+     * device threads; it is skipped while any of them is busy. With no
+     * reader open, the SDK is enumerated directly, under the registry lock
+     * so it never overlaps an open.</p>
+     *
+     * @return the number of readers, or {@code -1} if it cannot be known now
+     */
+    public synchronized int attached(FingerprintType type) {
+        DeviceActor idle = null;
+
+        for (String id : ids(type)) {
+            Fingerprint device = devices.get(id);
+            if (!(device instanceof DeviceActor)) continue;
+
+            DeviceState state = ((DeviceActor) device).state();
+            if (state != DeviceState.IDLE && state != DeviceState.READY) return -1;
+
+            if (idle == null) idle = (DeviceActor) device;
+        }
+
+        return idle == null ? FingerprintFactory.count(type) : idle.attachedReaders();
+    }
+
+    /**
+     * Returns the id of the requested reader, or the default one when {@code null}.
+     *
+     * @throws FingerprintException if no such reader is connected
+     */
+    public String resolve(String deviceId) {
+        if (deviceId == null) {
+            for (String id : devices.keySet()) return id;
+        } else if (devices.containsKey(deviceId)) {
+            return deviceId;
+        }
+
+        throw notConnected();
+    }
+
+    /**
+     * Returns the reader registered under an id resolved by {@link #resolve(String)}.
+     *
+     * @throws FingerprintException if it is no longer connected
+     */
+    public Fingerprint require(String deviceId) {
+        Fingerprint device = devices.get(deviceId);
+        if (device == null) throw notConnected();
+
+        return device;
+    }
+
+    /**
+     * Unregisters a reader, returning it or {@code null} when unknown.
+     */
+    public Fingerprint remove(String deviceId) {
+        return devices.remove(deviceId);
+    }
+
+    /**
+     * Unregisters a reader and shuts it down, failing its pending capture.
+     *
+     * @return {@code false} if it was not registered
+     */
+    public boolean disconnect(String deviceId) {
+        Fingerprint device = devices.remove(deviceId);
+        if (device == null) return false;
+
+        try {
+            device.shutdown();
+        } catch (Exception ignored) {
+            // The reader is gone; its SDK handle may already be unusable
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the ids of the registered readers, in sort order.
+     */
+    public List<String> ids() {
+        return new ArrayList<>(devices.keySet());
+    }
+
+    /**
+     * Returns the ids of the registered readers of a type, in sort order.
+     */
+    public List<String> ids(FingerprintType type) {
+        String prefix = FingerprintFactory.devicePrefix(type);
+        List<String> ids = new ArrayList<>();
+
+        for (String id : devices.keySet()) {
+            if (id.startsWith(prefix)) ids.add(id);
+        }
+
+        return ids;
+    }
+
+    /**
+     * Returns the state of each of the given readers, {@code CLOSED} when no longer registered.
+     */
+    public Map<String, String> states(List<String> ids) {
+        Map<String, String> states = new LinkedHashMap<>();
+
+        for (String id : ids) {
+            Fingerprint device = devices.get(id);
+
+            DeviceState state = device instanceof DeviceActor
+                    ? ((DeviceActor) device).state()
+                    : device == null ? DeviceState.CLOSED : DeviceState.IDLE;
+
+            states.put(id, state.name());
+        }
+
+        return states;
+    }
+
+    private static FingerprintException notConnected() {
+        return new FingerprintException(
+                FingerprintErrorCodes.READER_NOT_CONNECTED,
+                "Unable to connect to reader"
+        );
+    }
+}
@@ -0,0 +1,41 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.device;
+
+/**
+ * Lifecycle states of a fingerprint device driven by a {@link DeviceActor}.
+ *
+ * <p>Transitions happen through compare-and-set on a single atomic
+ * reference, so the HTTP threads and the device thread always agree on
+ * which of them owns the next step.</p>
+ */
+public enum DeviceState {
+
+    /**
+     * The SDK is not initialized; {@code initialize} has not run or the device was shut down.
+     */
+    CLOSED,
+
+    /**
+     * Connected and waiting for a capture request.
+     */
+    IDLE,
+
+    /**
+     * A capture was requested and is queued for the device thread.
+     */
+    ARMED,
+
+    /**
+     * The device thread is inside the SDK capture call.
+     */
+    CAPTURING,
+
+    /**
+     * The last capture produced a template.
+     */
+    READY,
+
+    /**
+     * Shutdown was requested; the SDK is being released.
+     */
+    CLOSING
+}
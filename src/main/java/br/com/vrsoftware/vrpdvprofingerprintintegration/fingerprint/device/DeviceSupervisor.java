@@ -0,0 +1,221 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.device;
+
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.Fingerprint;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.factory.FingerprintFactory;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.model.FingerprintType;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background discovery and hot-plug watchdog for the readers.
+ *
+ * <p>Every {@code fingerprint.supervisor.intervalMs} it enumerates the
+ * readers of each watched type, opens new ones, and shuts down those that
+ * were unplugged or stopped answering their probe, failing their pending
+ * capture. Readers that fail to open are retried with an exponential
+ * backoff capped at {@code fingerprint.supervisor.maxBackoffMs}.</p>
+ *
+ * <p>The supervisor never calls a vendor SDK itself: readers are enumerated
+ * through {@link DeviceRegistry#attached}, on the device thread of an idle
+ * reader, and a type is skipped for the round while one of its readers is
+ * capturing.</p>
+ *
+ * <p>Types listed in {@code fingerprint.supervisor.models} (model ids, e.g.
+ * {@code 2,1}) are opened at startup; any other type is watched from its
+ * first {@code init}. Since readers stay open, {@code init} answers with
+ * the current state instead of paying the SDK open cost.</p>
+ */
+public final class DeviceSupervisor {
+
+    private static final long INTERVAL_MS = Long.getLong("fingerprint.supervisor.intervalMs", 2_000);
+
+    private static final long MAX_BACKOFF_MS = Long.getLong("fingerprint.supervisor.maxBackoffMs", 60_000);
+
+    private static final DeviceSupervisor SHARED = new DeviceSupervisor(DeviceRegistry.shared());
+
+    private final DeviceRegistry registry;
+
+    private final Set<FingerprintType> watched = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Readers shut down on request, which are not reopened until the next {@code init}.
+     */
+    private final Set<String> released = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Pending retries by device id, or by type name for failed enumerations;
+     * only used on the supervisor thread.
+     */
+    private final Map<String, Backoff> retries = new HashMap<>();
+
+    private ScheduledExecutorService timer;
+
+    private DeviceSupervisor(DeviceRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Returns the supervisor shared by the whole service.
+     */
+    public static DeviceSupervisor shared() {
+        return SHARED;
+    }
+
+    /**
+     * Watches the types configured in {@code fingerprint.supervisor.models}
+     * and starts the background checks; later calls do nothing.
+     */
+    public synchronized void start() {
+        if (timer != null) return;
+
+        for (String model : System.getProperty("fingerprint.supervisor.models", "").split(",")) {
+            if (model.trim().isEmpty()) continue;
+
+            try {
+                watched.add(FingerprintType.fromId(Integer.parseInt(model.trim())));
+            } catch (IllegalArgumentException e) {
+                System.out.println("Ignoring supervised model " + model.trim() + ": " + e.getMessage());
+            }
+        }
+
+        timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Device supervisor");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        timer.scheduleWithFixedDelay(this::check, 0, INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the readers of a type, opening them only when none is open yet.
+     *
+     * <p>The type is watched from then on, and readers released by
+     * {@link #release(String)} become eligible again.</p>
+     *
+     * @return the ids of the readers connected
+     * @throws Exception the failure of the last reader when none could be opened
+     */
+    public List<String> connect(FingerprintType type, String deviceId) throws Exception {
+        watched.add(type);
+
+        String prefix = FingerprintFactory.devicePrefix(type);
+        released.removeIf(id -> deviceId == null ? id.startsWith(prefix) : id.equals(deviceId));
+
+        List<String> open = registry.ids(type);
+        if (deviceId != null) open.retainAll(Collections.singleton(deviceId));
+
+        if (!open.isEmpty()) return open;
+
+        return registry.connect(type, deviceId);
+    }
+
+    /**
+     * Marks a reader shut down on request, so it is not reopened behind the client's back.
+     */
+    public void release(String deviceId) {
+        released.add(deviceId);
+    }
+
+    /**
+     * Runs one round of discovery and health checks.
+     */
+    private void check() {
+        for (FingerprintType type : watched) {
+            try {
+                supervise(type);
+            } catch (Throwable e) {
+                // Missing native libraries or a crashed SDK must not stop the supervisor
+                fail(type.name(), "Unable to enumerate " + type + " readers", e);
+            }
+        }
+    }
+
+    private void supervise(FingerprintType type) {
+        if (!due(type.name())) return;
+
+        // Unknown while a reader is capturing; checked again next round
+        int count = registry.attached(type);
+        if (count < 0) return;
+
+        retries.remove(type.name());
+
+        Set<String> attached = new HashSet<>();
+        for (int i = 0; i < count; i++) attached.add(FingerprintFactory.deviceId(type, i));
+
+        for (String id : registry.ids(type)) {
+            if (attached.contains(id) && alive(id)) continue;
+
+            if (registry.disconnect(id)) {
+                System.out.println("Reader disconnected: " + id);
+            }
+        }
+
+        List<String> open = registry.ids(type);
+
+        for (int i = 0; i < count; i++) {
+            String id = FingerprintFactory.deviceId(type, i);
+            if (open.contains(id) || released.contains(id) || !due(id)) continue;
+
+            try {
+                registry.connect(type, id);
+                retries.remove(id);
+
+                System.out.println("Reader connected: " + id);
+            } catch (Exception e) {
+                fail(id, "Unable to open reader " + id, e);
+            }
+        }
+    }
+
+    private boolean alive(String deviceId) {
+        Fingerprint device;
+
+        try {
+            device = registry.require(deviceId);
+        } catch (RuntimeException e) {
+            return false;
+        }
+
+        return !(device instanceof DeviceActor) || ((DeviceActor) device).alive();
+    }
+
+    private boolean due(String key) {
+        Backoff backoff = retries.get(key);
+
+        return backoff == null || System.currentTimeMillis() >= backoff.nextAttempt;
+    }
+
+    /**
+     * Schedules the next attempt, doubling the delay; only the first failure is logged.
+     */
+    private void fail(String key, String message, Throwable cause) {
+        Backoff backoff = retries.get(key);
+
+        if (backoff == null) {
+            backoff = new Backoff();
+            retries.put(key, backoff);
+
+            System.out.println(message + ": " + cause);
+        } else {
+            backoff.delayMs = Math.min(backoff.delayMs * 2, MAX_BACKOFF_MS);
+        }
+
+        backoff.nextAttempt = System.currentTimeMillis() + backoff.delayMs;
+    }
+
+    private static final class Backoff {
+
+        long delayMs = INTERVAL_MS;
+        long nextAttempt;
+    }
+}
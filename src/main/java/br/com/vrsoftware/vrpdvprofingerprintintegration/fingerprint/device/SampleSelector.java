@@ -0,0 +1,130 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.device;
+
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.capture.SelectionReason;
+
+import java.util.function.Supplier;
+
+/**
+ * Best-of-N frame selection for one capture.
+ *
+ * <p>Frames at or above the reader's minimum quality are candidates. The
+ * first one reaching {@code fingerprint.capture.goodQuality} ends the
+ * selection at once; otherwise the best candidate is kept until
+ * {@code fingerprint.capture.maxFrames} candidates were seen or
+ * {@code fingerprint.capture.budgetMs} elapsed since the first one.</p>
+ *
+ * <p>Only a frame that beats the current best is materialized, so readers
+ * can pass the copy as a {@link Supplier}. Not thread-safe; used on the
+ * device thread.</p>
+ *
+ * @param <T> the frame type kept for extraction
+ */
+public final class SampleSelector<T> {
+
+    private static final int GOOD_QUALITY = Integer.getInteger("fingerprint.capture.goodQuality", 80);
+    private static final int MAX_FRAMES = Integer.getInteger("fingerprint.capture.maxFrames", 5);
+    private static final long BUDGET_NANOS = Long.getLong("fingerprint.capture.budgetMs", 1_000) * 1_000_000L;
+
+    private final int minQuality;
+
+    private T best;
+    private int bestQuality = -1;
+    private int candidates;
+    private long firstCandidateNanos;
+    private boolean improved;
+    private SelectionReason reason;
+
+    /**
+     * Creates a selector ignoring frames below {@code minQuality}.
+     */
+    public SampleSelector(int minQuality) {
+        this.minQuality = minQuality;
+    }
+
+    /**
+     * Considers a frame of the given quality.
+     *
+     * @return {@code true} once the selection is complete and the capture should stop
+     */
+    public boolean offer(int quality, Supplier<T> frame) {
+        improved = false;
+
+        if (reason != null) return true;
+        if (quality < minQuality) return false;
+
+        long now = System.nanoTime();
+        if (candidates++ == 0) firstCandidateNanos = now;
+
+        if (quality > bestQuality) {
+            best = frame.get();
+            bestQuality = quality;
+            improved = true;
+        }
+
+        if (quality >= GOOD_QUALITY) {
+            reason = SelectionReason.HIGH_QUALITY;
+        } else if (candidates >= MAX_FRAMES) {
+            reason = SelectionReason.FRAME_BUDGET;
+        } else if (now - firstCandidateNanos >= BUDGET_NANOS) {
+            reason = SelectionReason.TIME_BUDGET;
+        }
+
+        return reason != null;
+    }
+
+    /**
+     * Ends the selection when the reader stopped sending frames.
+     *
+     * @return whether a candidate was kept
+     */
+    public boolean finish() {
+        if (reason == null && best != null) reason = SelectionReason.CAPTURE_END;
+
+        return best != null;
+    }
+
+    /**
+     * Returns whether the selection is complete.
+     */
+    public boolean done() {
+        return reason != null;
+    }
+
+    /**
+     * Returns the best candidate, or {@code null} when none was acceptable.
+     */
+    public T best() {
+        return best;
+    }
+
+    /**
+     * Returns whether the last offered frame became the best candidate.
+     *
+     * <p>Readers reusing frame buffers must check this rather than compare
+     * {@link #best()} references, since a recycled buffer may come back.</p>
+     */
+    public boolean improved() {
+        return improved;
+    }
+
+    /**
+     * Returns the quality of the best candidate, or {@code -1} when none.
+     */
+    public int bestQuality() {
+        return bestQuality;
+    }
+
+    /**
+     * Returns the number of candidates considered.
+     */
+    public int candidates() {
+        return candidates;
+    }
+
+    /**
+     * Returns why the best candidate was selected, or {@code null} while selecting.
+     */
+    public SelectionReason reason() {
+        return reason;
+    }
+}
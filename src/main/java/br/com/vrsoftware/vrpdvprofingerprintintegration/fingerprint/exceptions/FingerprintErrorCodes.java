@@ -8,6 +8,15 @@ public final class FingerprintErrorCodes {
     public static final String READER_NOT_CONNECTED = "READER_NOT_CONNECTED";
     public static final String SDK_INIT_FAILED = "SDK_INIT_FAILED";
     public static final String CAPTURE_FAILED = "CAPTURE_FAILED";
+    public static final String CAPTURE_TIMEOUT = "CAPTURE_TIMEOUT";
+    public static final String CAPTURE_CANCELLED = "CAPTURE_CANCELLED";
+    public static final String CAPTURE_SESSION_NOT_FOUND = "CAPTURE_SESSION_NOT_FOUND";
     public static final String MATCH_FAILED = "MATCH_FAILED";
     public static final String UNSUPPORTED_DEVICE = "UNSUPPORTED_DEVICE";
+    public static final String INVALID_TEMPLATE = "INVALID_TEMPLATE";
+    public static final String INVALID_REQUEST = "INVALID_REQUEST";
+    public static final String PAYLOAD_TOO_LARGE = "PAYLOAD_TOO_LARGE";
+    public static final String SERVICE_BUSY = "SERVICE_BUSY";
+    public static final String BLANK_IMAGE = "BLANK_IMAGE";
+    public static final String VERSION_CONFLICT = "VERSION_CONFLICT";
 }
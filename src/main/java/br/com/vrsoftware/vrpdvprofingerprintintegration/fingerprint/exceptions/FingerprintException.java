@@ -7,6 +7,8 @@ package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions;
  */
 public class FingerprintException extends RuntimeException {
 
+    private static final long serialVersionUID = 1L;
+
     /**
      * Machine-readable error code.
      */
@@ -26,5 +28,12 @@ public class FingerprintException extends RuntimeException {
     public String getCode() {
         return code;
     }
+
+    /**
+     * Returns the HTTP status used when this error is sent to a client.
+     */
+    public int getHttpStatus() {
+        return 400;
+    }
 }
 
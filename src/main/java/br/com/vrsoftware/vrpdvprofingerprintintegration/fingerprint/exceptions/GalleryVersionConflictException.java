@@ -0,0 +1,38 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions;
+
+/**
+ * Raised when a gallery delta was computed against a version other than the current one.
+ *
+ * <p>Sent to clients as HTTP 409; the client must fetch the current version
+ * and send the changes made since it.</p>
+ */
+public class GalleryVersionConflictException extends FingerprintException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long currentVersion;
+
+    /**
+     * Creates the exception for a delta based on {@code since}.
+     */
+    public GalleryVersionConflictException(long since, long currentVersion) {
+        super(
+                FingerprintErrorCodes.VERSION_CONFLICT,
+                "Gallery is at version " + currentVersion + ", not " + since
+        );
+
+        this.currentVersion = currentVersion;
+    }
+
+    /**
+     * Returns the gallery version when the delta was rejected.
+     */
+    public long getCurrentVersion() {
+        return currentVersion;
+    }
+
+    @Override
+    public int getHttpStatus() {
+        return 409;
+    }
+}
@@ -0,0 +1,26 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions;
+
+/**
+ * Raised when a request body exceeds the size accepted by its endpoint.
+ *
+ * <p>Sent to clients as HTTP 413.</p>
+ */
+public class PayloadTooLargeException extends FingerprintException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates the exception for the given size limit, in bytes.
+     */
+    public PayloadTooLargeException(long maxBytes) {
+        super(
+                FingerprintErrorCodes.PAYLOAD_TOO_LARGE,
+                "Request body larger than " + maxBytes + " bytes"
+        );
+    }
+
+    @Override
+    public int getHttpStatus() {
+        return 413;
+    }
+}
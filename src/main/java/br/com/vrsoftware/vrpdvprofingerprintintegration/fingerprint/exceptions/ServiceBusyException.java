@@ -0,0 +1,27 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions;
+
+/**
+ * Raised when the executor responsible for a request has no room left for it.
+ *
+ * <p>Sent to clients as HTTP 503, so callers can retry later instead of
+ * treating the whole service as down.</p>
+ */
+public class ServiceBusyException extends FingerprintException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates the exception for the named executor.
+     */
+    public ServiceBusyException(String executor) {
+        super(
+                FingerprintErrorCodes.SERVICE_BUSY,
+                "Too many " + executor + " requests in progress"
+        );
+    }
+
+    @Override
+    public int getHttpStatus() {
+        return 503;
+    }
+}
@@ -5,6 +5,7 @@ import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.F
 import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.FingerprintException;
 import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.impl.ControlID;
 import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.impl.HamsterDX;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.impl.Simulated;
 import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.model.FingerprintType;
 
 /**
@@ -12,21 +13,75 @@ import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.model.Finger
  */
 public final class FingerprintFactory {
 
+    /**
+     * Returns how many readers of the given type are attached.
+     *
+     * <p>The CIDBio SDK keeps a single global connection, so at most one
+     * Control iD reader can be driven per process.</p>
+     */
+    public static int count(FingerprintType type) {
+
+        switch (type) {
+            case CONTROLID:
+                return 1;
+            case HAMSTER:
+                return HamsterDX.count();
+            case SIMULATED:
+                return Simulated.count();
+            default:
+                throw unsupported(type);
+        }
+    }
+
     /**
      * Creates a fingerprint implementation based on the device type.
      */
     public static Fingerprint create(FingerprintType type) {
+        return create(type, 0);
+    }
+
+    /**
+     * Creates the implementation driving the {@code index}-th reader of the given type.
+     */
+    public static Fingerprint create(FingerprintType type, int index) {
 
         switch (type) {
             case CONTROLID:
                 return new ControlID();
             case HAMSTER:
-                return new HamsterDX();
+                return new HamsterDX(index);
+            case SIMULATED:
+                return new Simulated(index);
             default:
-                throw new FingerprintException(
-                        FingerprintErrorCodes.UNSUPPORTED_DEVICE,
-                        "Fingerprint device not supported: " + type
-                );
+                throw unsupported(type);
         }
     }
+
+    /**
+     * Returns the id under which the {@code index}-th reader of a type is registered.
+     */
+    public static String deviceId(FingerprintType type, int index) {
+        return devicePrefix(type) + index;
+    }
+
+    /**
+     * Returns the index of the reader registered under {@code deviceId}, as passed to {@link #create}.
+     */
+    public static int deviceIndex(FingerprintType type, String deviceId) {
+        return Integer.parseInt(deviceId.substring(devicePrefix(type).length()));
+    }
+
+    /**
+     * Returns the prefix shared by the ids of every reader of a type.
+     */
+    public static String devicePrefix(FingerprintType type) {
+        return type.name().toLowerCase() + "-";
+    }
+
+    private static FingerprintException unsupported(FingerprintType type) {
+        return new FingerprintException(
+                FingerprintErrorCodes.UNSUPPORTED_DEVICE,
+                "Fingerprint device not supported: " + type
+        );
+    }
 }
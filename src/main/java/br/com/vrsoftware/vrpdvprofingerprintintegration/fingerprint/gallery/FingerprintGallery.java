@@ -0,0 +1,408 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.gallery;
+
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.FingerprintErrorCodes;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.FingerprintException;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.GalleryVersionConflictException;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.template.TemplateCodec;
+import com.machinezoo.sourceafis.FingerprintTemplate;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory set of enrolled fingerprint templates used for 1:N identification.
+ *
+ * <p>Templates are kept already parsed, so identification only pays for
+ * the comparisons.</p>
+ *
+ * <p>When backed by a {@link GalleryStore}, every change is appended to the
+ * gallery file and the gallery is reloaded from it on startup. Templates
+ * loaded from the file are parsed lazily, on first use.</p>
+ *
+ * <p>Every change advances the gallery version, which is persisted with it.
+ * A change is applied as a whole: identification sees the gallery either
+ * before or after it, never halfway.</p>
+ */
+public final class FingerprintGallery {
+
+    /**
+     * Default gallery file, relative to the install directory.
+     */
+    private static final String DEFAULT_FILE = "data" + File.separator + "gallery.dat";
+
+    private static final FingerprintGallery SHARED = new FingerprintGallery(
+            storeFor(System.getProperty("fingerprint.gallery.file", DEFAULT_FILE))
+    );
+
+    private final Map<String, GalleryEntry> templates = new ConcurrentHashMap<>();
+    private final GalleryStore store;
+
+    /**
+     * Held for writing while a change is applied, and for reading while entries are copied.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile long version;
+
+    /**
+     * Creates a gallery that lives only in memory.
+     */
+    public FingerprintGallery() {
+        this(null);
+    }
+
+    /**
+     * Creates a gallery persisted to {@code store}, or kept in memory when it is {@code null}.
+     */
+    FingerprintGallery(GalleryStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Returns the gallery shared by the HTTP endpoints, persisted to the file
+     * set by {@code fingerprint.gallery.file} (empty to keep it in memory only).
+     */
+    public static FingerprintGallery shared() {
+        return SHARED;
+    }
+
+    /**
+     * Loads the persisted templates, if the gallery is backed by a file.
+     *
+     * @return the number of templates loaded
+     */
+    public int load() throws IOException {
+        if (store == null) return 0;
+
+        lock.writeLock().lock();
+
+        try {
+            Map<String, ByteBuffer> records = store.open();
+
+            for (Map.Entry<String, ByteBuffer> record : records.entrySet()) {
+                templates.put(record.getKey(), new GalleryEntry(record.getKey(), record.getValue()));
+            }
+
+            version = store.version();
+
+            return records.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the current gallery version, 0 before the first change.
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Returns how many bytes compacting the gallery file reclaimed while loading, 0 if it was not compacted.
+     */
+    public long reclaimedBytes() {
+        return store == null ? 0 : store.reclaimedBytes();
+    }
+
+    /**
+     * Indicates whether a damaged tail was discarded while loading the gallery file.
+     */
+    public boolean recoveredTornTail() {
+        return store != null && store.recoveredTornTail();
+    }
+
+    /**
+     * Adds or replaces the template enrolled under the given id.
+     *
+     * @param template SourceAFIS JSON or base64 binary template
+     * @return the new gallery version
+     */
+    public long enroll(String id, String template) throws IOException {
+        return commit(Collections.singletonList(prepare(id, template)));
+    }
+
+    /**
+     * Parses and validates a template for enrollment without adding it yet.
+     *
+     * <p>Thread-safe and free of I/O, so imports prepare records in parallel
+     * and {@link #commit(List)} them in batches.</p>
+     *
+     * @param template SourceAFIS JSON or base64 binary template
+     * @throws FingerprintException {@code INVALID_REQUEST} if the id or the
+     *                              record does not fit the gallery file
+     * @throws RuntimeException     if the template cannot be parsed
+     */
+    public Enrollment prepare(String id, String template) {
+        if (store != null) checkRecord(id, new byte[0]);
+
+        String json = TemplateCodec.toJson(template);
+        FingerprintTemplate parsed = new FingerprintTemplate(json);
+        TemplateCodec.Minutiae minutiae = readMinutiae(json);
+
+        if (store != null && minutiae == null) throw new IllegalArgumentException("Unsupported template format");
+
+        byte[] record = minutiae == null ? null : TemplateCodec.encode(minutiae);
+        if (store != null) checkRecord(id, record);
+
+        return new Enrollment(
+                new GalleryEntry(id, parsed, minutiae == null ? null : TemplateFeatures.of(minutiae)),
+                record
+        );
+    }
+
+    /**
+     * Adds or replaces prepared templates, in order, persisting them with a single sync.
+     *
+     * @return the new gallery version
+     */
+    public long commit(List<Enrollment> enrollments) throws IOException {
+        if (enrollments.isEmpty()) return version;
+
+        lock.writeLock().lock();
+
+        try {
+            return write(enrollments, Collections.emptyList(), 0);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the template enrolled under the given id.
+     *
+     * @return the new gallery version, or {@code -1} if no template was enrolled under the id
+     */
+    public long remove(String id) throws IOException {
+        lock.writeLock().lock();
+
+        try {
+            if (!templates.containsKey(id)) return -1;
+
+            return write(Collections.emptyList(), Collections.singletonList(id), 0);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies the changes made to a gallery copy since version {@code since}.
+     *
+     * <p>Deletions are applied before the templates, so an id present in
+     * both ends up enrolled. Nothing is applied unless the gallery is still
+     * at {@code since}.</p>
+     *
+     * @param target the version the gallery moves to, or 0 for the next one
+     * @return the new gallery version
+     * @throws GalleryVersionConflictException if the gallery is not at {@code since}
+     */
+    public long applyDelta(
+            long since,
+            long target,
+            List<Enrollment> upserts,
+            List<String> deletes
+    ) throws IOException {
+        if (target != 0 && target <= since) {
+            throw new IllegalArgumentException("Target version must be greater than " + since);
+        }
+
+        lock.writeLock().lock();
+
+        try {
+            if (version != since) throw new GalleryVersionConflictException(since, version);
+
+            if (upserts.isEmpty() && deletes.isEmpty() && target == 0) return version;
+
+            return write(upserts, deletes, target);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of enrolled templates.
+     */
+    public int size() {
+        return templates.size();
+    }
+
+    /**
+     * Returns a point-in-time copy of the enrolled entries.
+     */
+    GalleryEntry[] entries() {
+        lock.readLock().lock();
+
+        try {
+            return templates.values().toArray(new GalleryEntry[0]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Persists and applies a change, moving to {@code target} or to the next
+     * version. Must be called with the write lock held.
+     */
+    private long write(List<Enrollment> upserts, List<String> deletes, long target) throws IOException {
+        long next = target != 0 ? target : version + 1;
+
+        if (store != null) {
+            List<String> ids = new ArrayList<>(upserts.size());
+            List<byte[]> records = new ArrayList<>(upserts.size());
+
+            for (Enrollment enrollment : upserts) {
+                ids.add(enrollment.entry.id);
+                records.add(enrollment.record);
+            }
+
+            store.write(deletes, ids, records, next);
+        }
+
+        for (String id : deletes) {
+            templates.remove(id);
+        }
+
+        for (Enrollment enrollment : upserts) {
+            templates.put(enrollment.entry.id, enrollment.entry);
+        }
+
+        version = next;
+
+        return next;
+    }
+
+    /**
+     * Reads the minutiae used by the prefilter index, or {@code null}
+     * when the template layout is not understood.
+     */
+    private static TemplateCodec.Minutiae readMinutiae(String json) {
+        try {
+            return TemplateCodec.readMinutiae(json);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Rejects records the gallery file cannot hold, before any I/O.
+     */
+    private static void checkRecord(String id, byte[] record) {
+        try {
+            GalleryStore.checkRecord(id, record);
+        } catch (IllegalArgumentException e) {
+            throw new FingerprintException(FingerprintErrorCodes.INVALID_REQUEST, e.getMessage());
+        }
+    }
+
+    private static GalleryStore storeFor(String path) {
+        return path == null || path.trim().isEmpty()
+                ? null
+                : new GalleryStore(new File(path));
+    }
+
+    /**
+     * A parsed template ready to be committed to the gallery.
+     */
+    public static final class Enrollment {
+
+        private final GalleryEntry entry;
+        private final byte[] record;
+
+        private Enrollment(GalleryEntry entry, byte[] record) {
+            this.entry = entry;
+            this.record = record;
+        }
+
+        /**
+         * Returns the id the template is enrolled under.
+         */
+        public String id() {
+            return entry.id;
+        }
+    }
+
+    /**
+     * Enrolled template paired with its id and prefilter descriptor.
+     *
+     * <p>Entries read from the gallery file keep a view of the mapped record
+     * and parse it the first time the template or descriptor is needed.</p>
+     */
+    static final class GalleryEntry {
+
+        /**
+         * Marks a descriptor that could not be computed.
+         */
+        private static final float[] NO_FEATURES = new float[0];
+
+        final String id;
+
+        private volatile FingerprintTemplate template;
+        private volatile float[] features;
+        private volatile ByteBuffer record;
+
+        GalleryEntry(String id, FingerprintTemplate template, float[] features) {
+            this.id = id;
+            this.template = template;
+            this.features = features == null ? NO_FEATURES : features;
+        }
+
+        GalleryEntry(String id, ByteBuffer record) {
+            this.id = id;
+            this.record = record;
+        }
+
+        FingerprintTemplate template() {
+            FingerprintTemplate parsed = template;
+            if (parsed != null) return parsed;
+
+            synchronized (this) {
+                if (template == null) {
+                    template = new FingerprintTemplate(TemplateCodec.decode(recordBytes()));
+                    if (features != null) record = null;
+                }
+
+                return template;
+            }
+        }
+
+        /**
+         * Returns the prefilter descriptor, or {@code null} if it is unavailable.
+         */
+        float[] features() {
+            float[] computed = features;
+
+            if (computed == null) {
+                synchronized (this) {
+                    if (features == null) {
+                        try {
+                            features = TemplateFeatures.of(TemplateCodec.readMinutiae(recordBytes()));
+                        } catch (RuntimeException e) {
+                            features = NO_FEATURES;
+                        }
+
+                        if (template != null) record = null;
+                    }
+
+                    computed = features;
+                }
+            }
+
+            return computed == NO_FEATURES ? null : computed;
+        }
+
+        private byte[] recordBytes() {
+            ByteBuffer view = record.duplicate();
+            byte[] bytes = new byte[view.remaining()];
+            view.get(bytes);
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.gallery;
+
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.Fingerprint;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.matching.MatchingPool;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.model.FingerprintCandidate;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.model.FingerprintIdentifyResult;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.template.TemplateCodec;
+import com.machinezoo.sourceafis.FingerprintMatcher;
+import com.machinezoo.sourceafis.FingerprintTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Searches a {@link FingerprintGallery} for the templates most similar to a probe.
+ *
+ * <p>Large galleries are first ranked by {@link TemplateFeatures} distance
+ * and only the closest fraction ({@code fingerprint.identify.candidateFraction},
+ * never fewer than {@code fingerprint.identify.minCandidates}) goes through
+ * full matching. The candidates are split recursively and compared on the
+ * shared {@link MatchingPool}. A single
+ * {@link FingerprintMatcher} is built for the probe and shared by all
+ * workers.</p>
+ */
+public final class FingerprintIdentifier {
+
+    /**
+     * Score from which the best candidate is reported as a match,
+     * the same threshold used by the device 1:1 match.
+     */
+    public static final double MATCH_THRESHOLD = Fingerprint.DEFAULT_THRESHOLD - 10;
+
+    /**
+     * Fraction of the gallery fully matched when the request does not set one.
+     */
+    public static final double DEFAULT_CANDIDATE_FRACTION = Double.parseDouble(
+            System.getProperty("fingerprint.identify.candidateFraction", "0.25")
+    );
+
+    /**
+     * Galleries up to this size are always fully scanned.
+     */
+    private static final int MIN_CANDIDATES = Integer.getInteger("fingerprint.identify.minCandidates", 1000);
+
+    /**
+     * Largest number of candidates a single identification returns.
+     */
+    public static final int MAX_TOP_K = Math.max(1, Integer.getInteger("fingerprint.identify.maxTopK", 100));
+
+    /**
+     * Longest time budget a single identification may request.
+     */
+    public static final long MAX_TIME_BUDGET_MS = Math.max(1, Long.getLong("fingerprint.identify.maxTimeBudgetMs", 60_000L));
+
+    /**
+     * Number of gallery entries compared sequentially by a single task.
+     */
+    private static final int LEAF_SIZE = 16;
+
+    private static final Comparator<FingerprintCandidate> BY_SCORE =
+            Comparator.comparingDouble(FingerprintCandidate::score);
+
+    private final FingerprintGallery gallery;
+
+    public FingerprintIdentifier(FingerprintGallery gallery) {
+        this.gallery = gallery;
+    }
+
+    /**
+     * Identifies the probe using the default candidate fraction.
+     *
+     * @see #identify(FingerprintTemplate, int, long, double, double)
+     */
+    public FingerprintIdentifyResult identify(
+            FingerprintTemplate probe,
+            int topK,
+            long timeBudgetMs,
+            double acceptScore
+    ) {
+        return identify(probe, topK, timeBudgetMs, acceptScore, DEFAULT_CANDIDATE_FRACTION);
+    }
+
+    /**
+     * Identifies the probe against the enrolled templates.
+     *
+     * @param probe             captured template
+     * @param topK              maximum number of candidates returned, at least {@code 1};
+     *                          capped at {@link #MAX_TOP_K} and at the gallery size
+     * @param timeBudgetMs      search time limit in milliseconds, or {@code 0} for none;
+     *                          capped at {@link #MAX_TIME_BUDGET_MS}
+     * @param acceptScore       score that stops the search immediately,
+     *                          or {@link Double#NaN} to always search the whole gallery
+     * @param candidateFraction fraction of the gallery, ranked by the prefilter
+     *                          index, that is fully matched; {@code 1} scans everything
+     */
+    public FingerprintIdentifyResult identify(
+            FingerprintTemplate probe,
+            int topK,
+            long timeBudgetMs,
+            double acceptScore,
+            double candidateFraction
+    ) {
+        if (topK < 1) throw new IllegalArgumentException("topK must be positive: " + topK);
+        if (timeBudgetMs < 0) throw new IllegalArgumentException("timeBudgetMs must not be negative: " + timeBudgetMs);
+
+        FingerprintGallery.GalleryEntry[] entries = prefilter(
+                gallery.entries(),
+                probe,
+                candidateFraction
+        );
+
+        if (entries.length == 0) {
+            return new FingerprintIdentifyResult(
+                    Collections.<FingerprintCandidate>emptyList(),
+                    0,
+                    true
+            );
+        }
+
+        long deadline = timeBudgetMs > 0
+                ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.min(timeBudgetMs, MAX_TIME_BUDGET_MS))
+                : Long.MAX_VALUE;
+
+        Search search = new Search(
+                new FingerprintMatcher(probe),
+                entries,
+                Math.min(topK, Math.min(entries.length, MAX_TOP_K)),
+                deadline,
+                acceptScore
+        );
+
+        List<FingerprintCandidate> candidates = MatchingPool.shared().invoke(
+                new SearchTask(search, 0, entries.length)
+        );
+
+        candidates.sort(BY_SCORE.reversed());
+
+        return new FingerprintIdentifyResult(
+                candidates,
+                search.compared.get(),
+                !search.stopped.get()
+        );
+    }
+
+    /**
+     * Keeps the entries whose descriptors are closest to the probe.
+     *
+     * <p>Entries without a descriptor rank first, so they are never skipped.</p>
+     */
+    private static FingerprintGallery.GalleryEntry[] prefilter(
+            FingerprintGallery.GalleryEntry[] entries,
+            FingerprintTemplate probe,
+            double candidateFraction
+    ) {
+        int limit = Math.max(
+                (int) Math.ceil(entries.length * candidateFraction),
+                MIN_CANDIDATES
+        );
+
+        if (limit >= entries.length) return entries;
+
+        float[] probeFeatures = featuresOf(probe);
+        if (probeFeatures == null) return entries;
+
+        // Non-negative float bits sort like the floats, so distance and index pack into one long
+        long[] ranked = new long[entries.length];
+
+        for (int i = 0; i < entries.length; i++) {
+            float[] features = entries[i].features();
+            float distance = features == null ? 0 : TemplateFeatures.distance(probeFeatures, features);
+
+            ranked[i] = ((long) Float.floatToIntBits(distance) << 32) | i;
+        }
+
+        Arrays.sort(ranked);
+
+        FingerprintGallery.GalleryEntry[] selected = new FingerprintGallery.GalleryEntry[limit];
+
+        for (int i = 0; i < limit; i++) {
+            selected[i] = entries[(int) ranked[i]];
+        }
+
+        return selected;
+    }
+
+    private static float[] featuresOf(FingerprintTemplate probe) {
+        try {
+            return TemplateFeatures.of(TemplateCodec.readMinutiae(probe.json()));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Keeps the {@code topK} best candidates of both lists.
+     */
+    private static List<FingerprintCandidate> merge(
+            List<FingerprintCandidate> left,
+            List<FingerprintCandidate> right,
+            int topK
+    ) {
+        PriorityQueue<FingerprintCandidate> best = new PriorityQueue<>(
+                Math.min(topK, left.size() + right.size()) + 1,
+                BY_SCORE
+        );
+
+        for (FingerprintCandidate candidate : left) offer(best, candidate, topK);
+        for (FingerprintCandidate candidate : right) offer(best, candidate, topK);
+
+        return new ArrayList<>(best);
+    }
+
+    private static void offer(
+            PriorityQueue<FingerprintCandidate> best,
+            FingerprintCandidate candidate,
+            int topK
+    ) {
+        if (best.size() < topK) {
+            best.add(candidate);
+        } else if (candidate.score() > best.peek().score()) {
+            best.poll();
+            best.add(candidate);
+        }
+    }
+
+    /**
+     * State shared by every task of a single identification.
+     */
+    private static final class Search {
+
+        final FingerprintMatcher matcher;
+        final FingerprintGallery.GalleryEntry[] entries;
+        final int topK;
+        final long deadline;
+        final double acceptScore;
+
+        final AtomicBoolean stopped = new AtomicBoolean(false);
+        final AtomicInteger compared = new AtomicInteger();
+
+        Search(
+                FingerprintMatcher matcher,
+                FingerprintGallery.GalleryEntry[] entries,
+                int topK,
+                long deadline,
+                double acceptScore
+        ) {
+            this.matcher = matcher;
+            this.entries = entries;
+            this.topK = topK;
+            this.deadline = deadline;
+            this.acceptScore = acceptScore;
+        }
+
+        boolean shouldStop() {
+            if (stopped.get()) return true;
+
+            if (System.nanoTime() > deadline) {
+                stopped.set(true);
+                return true;
+            }
+
+            return false;
+        }
+    }
+
+    /**
+     * Compares a range of gallery entries, splitting it while it is large.
+     */
+    private static final class SearchTask extends RecursiveTask<List<FingerprintCandidate>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Search search;
+        private final int from;
+        private final int to;
+
+        SearchTask(Search search, int from, int to) {
+            this.search = search;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<FingerprintCandidate> compute() {
+            if (to - from <= LEAF_SIZE) return scan();
+
+            int middle = (from + to) >>> 1;
+
+            SearchTask left = new SearchTask(search, from, middle);
+            left.fork();
+
+            List<FingerprintCandidate> right = new SearchTask(search, middle, to).compute();
+
+            return merge(left.join(), right, search.topK);
+        }
+
+        private List<FingerprintCandidate> scan() {
+            PriorityQueue<FingerprintCandidate> best = new PriorityQueue<>(
+                    Math.min(search.topK, to - from) + 1,
+                    BY_SCORE
+            );
+
+            for (int i = from; i < to; i++) {
+                if (search.shouldStop()) break;
+
+                FingerprintGallery.GalleryEntry entry = search.entries[i];
+                double score = search.matcher.match(entry.template());
+                search.compared.incrementAndGet();
+
+                offer(best, new FingerprintCandidate(entry.id, score), search.topK);
+
+                if (score >= search.acceptScore) search.stopped.set(true);
+            }
+
+            return new ArrayList<>(best);
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.gallery;
+
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.FingerprintErrorCodes;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.FingerprintException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Bulk enrollment from a stream of newline-delimited JSON records.
+ *
+ * <p>Each line is an object with {@code id} and {@code template} fields.
+ * Lines are split as the body arrives and parsed and validated in parallel
+ * on the given workers, with at most {@code fingerprint.import.inFlight}
+ * records outstanding, so memory stays bounded whatever the body size.
+ * Results are consumed in line order and committed to the gallery every
+ * {@code fingerprint.import.batchSize} records, so a later line for the
+ * same id wins, as with individual enrollments.</p>
+ *
+ * <p>Invalid records are skipped and reported with their line number; only
+ * the first {@code fingerprint.import.maxErrors} are kept.</p>
+ */
+public final class GalleryImporter {
+
+    private static final String PREFIX = "fingerprint.import.";
+
+    /**
+     * Largest import body accepted, {@code fingerprint.import.maxBodyBytes}; it is never held in memory.
+     */
+    public static final long MAX_BODY_BYTES = Long.getLong(PREFIX + "maxBodyBytes", 1024L * 1024 * 1024);
+
+    private static final int BATCH_SIZE = Math.max(1, Integer.getInteger(PREFIX + "batchSize", 500));
+    private static final int IN_FLIGHT = Math.max(1, Integer.getInteger(
+            PREFIX + "inFlight",
+            4 * Runtime.getRuntime().availableProcessors()
+    ));
+    private static final int MAX_LINE_BYTES = Integer.getInteger(PREFIX + "maxLineBytes", 256 * 1024);
+    private static final int MAX_ERRORS = Integer.getInteger(PREFIX + "maxErrors", 1000);
+
+    private final FingerprintGallery gallery;
+    private final Executor workers;
+
+    /**
+     * Creates an importer into {@code gallery}, parsing templates on {@code workers}.
+     */
+    public GalleryImporter(FingerprintGallery gallery, Executor workers) {
+        this.gallery = gallery;
+        this.workers = workers;
+    }
+
+    /**
+     * Reads every record of the stream and enrolls the valid ones.
+     *
+     * @throws IOException if the stream or the gallery file fails; records
+     *                     committed before the failure stay enrolled
+     */
+    public Result importFrom(InputStream body) throws IOException {
+        long start = System.nanoTime();
+        Result result = new Result();
+
+        Deque<CompletableFuture<Outcome>> pending = new ArrayDeque<>();
+        List<FingerprintGallery.Enrollment> batch = new ArrayList<>(BATCH_SIZE);
+
+        LineReader lines = new LineReader(body);
+        byte[] line;
+
+        try {
+            while ((line = lines.next()) != null) {
+                int number = lines.number();
+
+                if (line == LineReader.TOO_LONG) {
+                    pending.add(CompletableFuture.completedFuture(Outcome.failed(
+                            number, null, FingerprintErrorCodes.INVALID_REQUEST, "Record too long"
+                    )));
+                } else {
+                    byte[] record = line;
+                    pending.add(CompletableFuture.supplyAsync(() -> parse(number, record), workers));
+                }
+
+                // Consume finished records in order, waiting only when too many are outstanding
+                while (!pending.isEmpty() && (pending.peekFirst().isDone() || pending.size() >= IN_FLIGHT)) {
+                    consume(pending.pollFirst().join(), batch, result);
+                }
+            }
+
+            while (!pending.isEmpty()) {
+                consume(pending.pollFirst().join(), batch, result);
+            }
+
+            commit(batch, result);
+        } finally {
+            // Let outstanding parses finish on their own; their results are dropped
+            pending.clear();
+            result.elapsedNanos = System.nanoTime() - start;
+        }
+
+        return result;
+    }
+
+    private void consume(
+            Outcome outcome,
+            List<FingerprintGallery.Enrollment> batch,
+            Result result
+    ) throws IOException {
+        result.records++;
+
+        if (outcome.enrollment == null) {
+            result.failed++;
+            if (result.errors.size() < MAX_ERRORS) result.errors.add(outcome.error);
+
+            return;
+        }
+
+        batch.add(outcome.enrollment);
+        if (batch.size() >= BATCH_SIZE) commit(batch, result);
+    }
+
+    private void commit(List<FingerprintGallery.Enrollment> batch, Result result) throws IOException {
+        if (batch.isEmpty()) return;
+
+        gallery.commit(batch);
+
+        result.imported += batch.size();
+        result.batches++;
+        batch.clear();
+    }
+
+    /**
+     * Parses one record and prepares its template. Runs on a worker.
+     */
+    private Outcome parse(int line, byte[] record) {
+        String id = null;
+        String template = null;
+
+        try (JsonReader reader = new JsonReader(new StringReader(new String(record, StandardCharsets.UTF_8)))) {
+            reader.beginObject();
+
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+
+                if (("id".equals(name) || "template".equals(name)) && reader.peek() == JsonToken.STRING) {
+                    if ("id".equals(name)) id = reader.nextString();
+                    else template = reader.nextString();
+                } else {
+                    reader.skipValue();
+                }
+            }
+
+            reader.endObject();
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            return Outcome.failed(line, id, FingerprintErrorCodes.INVALID_REQUEST, "Malformed record");
+        }
+
+        if (id == null || id.isEmpty()) {
+            return Outcome.failed(line, null, FingerprintErrorCodes.INVALID_REQUEST, "Missing field: id");
+        }
+
+        if (template == null || template.isEmpty()) {
+            return Outcome.failed(line, id, FingerprintErrorCodes.INVALID_REQUEST, "Missing field: template");
+        }
+
+        try {
+            return new Outcome(gallery.prepare(id, template), null);
+        } catch (FingerprintException e) {
+            return Outcome.failed(line, id, e.getCode(), e.getMessage());
+        } catch (RuntimeException e) {
+            return Outcome.failed(line, id, FingerprintErrorCodes.INVALID_TEMPLATE, "Invalid fingerprint template");
+        }
+    }
+
+    /**
+     * Totals of an import and the errors of its rejected records.
+     */
+    public static final class Result {
+
+        private final List<RecordError> errors = new ArrayList<>();
+
+        private int records;
+        private int imported;
+        private int failed;
+        private int batches;
+        private long elapsedNanos;
+
+        /**
+         * Returns the number of non-blank lines read.
+         */
+        public int records() {
+            return records;
+        }
+
+        /**
+         * Returns the number of templates enrolled.
+         */
+        public int imported() {
+            return imported;
+        }
+
+        /**
+         * Returns the number of records rejected.
+         */
+        public int failed() {
+            return failed;
+        }
+
+        /**
+         * Returns the number of batches committed to the gallery.
+         */
+        public int batches() {
+            return batches;
+        }
+
+        /**
+         * Returns the time the import took, in milliseconds.
+         */
+        public long elapsedMillis() {
+            return elapsedNanos / 1_000_000;
+        }
+
+        /**
+         * Returns the records processed per second.
+         */
+        public double recordsPerSecond() {
+            return elapsedNanos == 0 ? 0 : records * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        /**
+         * Returns the first rejected records, in line order.
+         */
+        public List<RecordError> errors() {
+            return errors;
+        }
+    }
+
+    /**
+     * A rejected record.
+     */
+    public static final class RecordError {
+
+        private final int line;
+        private final String id;
+        private final String code;
+        private final String reason;
+
+        RecordError(int line, String id, String code, String reason) {
+            this.line = line;
+            this.id = id;
+            this.code = code;
+            this.reason = reason;
+        }
+
+        /**
+         * Returns the 1-based line number of the record.
+         */
+        public int line() {
+            return line;
+        }
+
+        /**
+         * Returns the record id, or {@code null} if it could not be read.
+         */
+        public String id() {
+            return id;
+        }
+
+        public String code() {
+            return code;
+        }
+
+        public String reason() {
+            return reason;
+        }
+    }
+
+    /**
+     * The prepared template of a record, or why it was rejected.
+     */
+    private static final class Outcome {
+
+        final FingerprintGallery.Enrollment enrollment;
+        final RecordError error;
+
+        Outcome(FingerprintGallery.Enrollment enrollment, RecordError error) {
+            this.enrollment = enrollment;
+            this.error = error;
+        }
+
+        static Outcome failed(int line, String id, String code, String reason) {
+            return new Outcome(null, new RecordError(line, id, code, reason));
+        }
+    }
+
+    /**
+     * Splits a byte stream into lines no longer than {@link #MAX_LINE_BYTES}, skipping blank ones.
+     */
+    private static final class LineReader {
+
+        /**
+         * Returned in place of a line that exceeded the limit; the rest of it is skipped.
+         */
+        static final byte[] TOO_LONG = new byte[0];
+
+        private final InputStream input;
+        private final byte[] chunk = new byte[64 * 1024];
+
+        private int position;
+        private int limit;
+        private int number;
+
+        private byte[] line = new byte[1024];
+
+        LineReader(InputStream input) {
+            this.input = input;
+        }
+
+        /**
+         * Returns the 1-based number of the line last returned.
+         */
+        int number() {
+            return number;
+        }
+
+        /**
+         * Returns the next non-blank line, {@link #TOO_LONG}, or {@code null} at the end of the stream.
+         */
+        byte[] next() throws IOException {
+            while (true) {
+                int length = 0;
+                boolean tooLong = false;
+                boolean read = false;
+
+                while (true) {
+                    if (position == limit) {
+                        limit = input.read(chunk, 0, chunk.length);
+                        position = 0;
+
+                        if (limit <= 0) {
+                            limit = 0;
+                            break;
+                        }
+                    }
+
+                    read = true;
+                    byte b = chunk[position++];
+                    if (b == '\n') break;
+
+                    if (tooLong) continue;
+
+                    if (length == MAX_LINE_BYTES) {
+                        tooLong = true;
+                        continue;
+                    }
+
+                    if (length == line.length) line = Arrays.copyOf(line, Math.min(line.length * 2, MAX_LINE_BYTES));
+                    line[length++] = b;
+                }
+
+                if (!read) return null;
+
+                number++;
+
+                if (tooLong) return TOO_LONG;
+
+                while (length > 0 && (line[length - 1] == '\r' || line[length - 1] == ' ' || line[length - 1] == '\t')) {
+                    length--;
+                }
+
+                if (length > 0) return Arrays.copyOf(line, length);
+            }
+        }
+    }
+}
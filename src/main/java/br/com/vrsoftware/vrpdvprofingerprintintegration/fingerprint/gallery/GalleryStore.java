@@ -0,0 +1,502 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.gallery;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file holding the enrolled gallery templates.
+ *
+ * <p>Each record is framed as:</p>
+ * <pre>
+ * magic (4 bytes) | payload length (4 bytes) | CRC32 of payload (4 bytes) | payload
+ * payload: operation (1 byte) | id length (2 bytes) | id (UTF-8) | binary template
+ * </pre>
+ *
+ * <p>Every write ends with a version record (empty id, 8-byte gallery
+ * version) and a single sync. Records are only applied once their version
+ * record is read, so a write interrupted midway is discarded as a whole.
+ * Files written before versions existed have no version record at all and
+ * load entirely, at version 0.</p>
+ *
+ * <p>On open the file is mapped with {@link FileChannel#map}, so records are
+ * only paged in when their template is first used. Records are verified in
+ * order; the first one with a bad frame or checksum marks a torn tail left by
+ * a power loss, and everything from there on is zeroed and later overwritten
+ * by new appends. The file is never truncated, because Windows refuses to
+ * resize a file while it is mapped.</p>
+ *
+ * <p>Replaced and deleted records stay in the file until it is compacted on
+ * open, see {@link #compact}. The file is mapped as a single buffer, so it
+ * is limited to 2 GB.</p>
+ */
+final class GalleryStore implements AutoCloseable {
+
+    private static final int RECORD_MAGIC = 0x56524752;
+    private static final int HEADER_SIZE = 12;
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+    private static final byte OP_VERSION = 3;
+
+    /**
+     * Largest payload accepted when reading, guarding against corrupt lengths.
+     */
+    private static final int MAX_PAYLOAD = 1024 * 1024;
+
+    /**
+     * Smallest file compacted on open; smaller files are left as they are.
+     */
+    private static final long COMPACT_MIN_BYTES = Long.getLong("fingerprint.gallery.compactMinBytes", 1024 * 1024);
+
+    private final File file;
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private long appendPosition;
+    private long version;
+    private boolean tornTail;
+    private long reclaimedBytes;
+
+    GalleryStore(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Maps the file and returns the live records, keyed by id, in file order.
+     *
+     * <p>A file of at least {@code fingerprint.gallery.compactMinBytes} that
+     * is mostly replaced or deleted records is compacted first.</p>
+     */
+    synchronized Map<String, ByteBuffer> open() throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Unable to create " + parent);
+        }
+
+        File active = finishCompaction();
+        Map<String, ByteBuffer> records = load(active);
+
+        long live = liveBytes(records);
+
+        if (appendPosition >= COMPACT_MIN_BYTES && live * 2 < appendPosition) {
+            long before = appendPosition;
+
+            try {
+                records = compact(records);
+                reclaimedBytes = before - appendPosition;
+            } catch (IOException e) {
+                // The current file is still intact; compaction is retried on the next start
+                System.out.println("Gallery compaction failed: " + e);
+            }
+        }
+
+        return records;
+    }
+
+    /**
+     * Returns how many bytes the compaction on open reclaimed, 0 if it did not run.
+     */
+    synchronized long reclaimedBytes() {
+        return reclaimedBytes;
+    }
+
+    /**
+     * Maps {@code target}, makes it the file written to and returns its live records.
+     */
+    private Map<String, ByteBuffer> load(File target) throws IOException {
+        channel = FileChannel.open(
+                target.toPath(),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE
+        );
+
+        long size = channel.size();
+        Map<String, ByteBuffer> records = new LinkedHashMap<>();
+
+        appendPosition = 0;
+
+        if (size == 0) return records;
+
+        if (size > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IOException("Gallery file " + target + " is larger than 2 GB and cannot be mapped");
+        }
+
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+        CRC32 crc = new CRC32();
+        long position = 0;
+
+        // Records of the write in progress, applied when its version record is read
+        List<String> pendingIds = new ArrayList<>();
+        List<ByteBuffer> pendingTemplates = new ArrayList<>();
+        long committed = 0;
+        boolean versioned = false;
+        boolean torn = false;
+
+        while (position + HEADER_SIZE <= size) {
+            int magic = mapped.getInt((int) position);
+
+            // Zeroed space left after a recovered torn tail marks the end of the records
+            if (magic == 0) break;
+
+            int length = mapped.getInt((int) position + 4);
+            int checksum = mapped.getInt((int) position + 8);
+            long payloadStart = position + HEADER_SIZE;
+
+            if (magic != RECORD_MAGIC
+                    || length < 3
+                    || length > MAX_PAYLOAD
+                    || payloadStart + length > size) {
+                torn = true;
+                break;
+            }
+
+            ByteBuffer payload = slice(payloadStart, length);
+
+            crc.reset();
+            crc.update(payload.duplicate());
+
+            if ((int) crc.getValue() != checksum) {
+                torn = true;
+                break;
+            }
+
+            byte operation = payload.get(0);
+            int idLength = payload.getShort(1) & 0xFFFF;
+
+            if (3 + idLength > length || (operation == OP_VERSION && length != 3 + idLength + 8)) {
+                torn = true;
+                break;
+            }
+
+            byte[] id = new byte[idLength];
+            ByteBuffer idBuffer = payload.duplicate();
+            idBuffer.position(3);
+            idBuffer.get(id);
+
+            position = payloadStart + length;
+
+            if (operation == OP_VERSION) {
+                apply(records, pendingIds, pendingTemplates);
+                version = payload.getLong(3 + idLength);
+                versioned = true;
+                committed = position;
+
+                continue;
+            }
+
+            pendingIds.add(new String(id, StandardCharsets.UTF_8));
+            pendingTemplates.add(operation == OP_PUT
+                    ? slice(payloadStart + 3 + idLength, length - 3 - idLength)
+                    : null);
+        }
+
+        if (!versioned) {
+            apply(records, pendingIds, pendingTemplates);
+            committed = position;
+        } else if (!pendingIds.isEmpty()) {
+            // A write without its version record was interrupted: discard it
+            torn = true;
+        }
+
+        appendPosition = committed;
+
+        // A partial header after the last record is also a torn tail
+        for (long i = committed; !torn && i < size; i++) {
+            if (mapped.get((int) i) != 0) torn = true;
+        }
+
+        if (torn) zeroTail(size);
+
+        tornTail |= torn;
+
+        return records;
+    }
+
+    /**
+     * Rewrites the live records to a new file and switches to it.
+     *
+     * <p>The records are written to {@code <file>.tmp} and synced, which is
+     * then renamed to {@code <file>.compact} and atomically moved over the
+     * gallery file, so a crash at any point leaves either the old or the new
+     * file complete. Windows refuses to replace a file that is still mapped;
+     * the new file is then used as {@code <file>.compact} and moved over the
+     * old one on the next start, by {@link #finishCompaction()}.</p>
+     */
+    private Map<String, ByteBuffer> compact(Map<String, ByteBuffer> records) throws IOException {
+        File temporary = sibling(".tmp");
+        File compacted = sibling(".compact");
+
+        try (FileOutputStream stream = new FileOutputStream(temporary)) {
+            BufferedOutputStream out = new BufferedOutputStream(stream, 64 * 1024);
+
+            for (Map.Entry<String, ByteBuffer> record : records.entrySet()) {
+                ByteBuffer template = record.getValue().duplicate();
+                byte[] bytes = new byte[template.remaining()];
+                template.get(bytes);
+
+                out.write(encode(OP_PUT, record.getKey(), bytes));
+            }
+
+            out.write(encode(OP_VERSION, "", ByteBuffer.allocate(8).putLong(version).array()));
+            out.flush();
+
+            stream.getFD().sync();
+        }
+
+        Files.move(temporary.toPath(), compacted.toPath(), StandardCopyOption.ATOMIC_MOVE);
+
+        channel.close();
+        channel = null;
+        mapped = null;
+
+        File active = compacted;
+
+        try {
+            Files.move(
+                    compacted.toPath(),
+                    file.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING
+            );
+
+            active = file;
+        } catch (IOException e) {
+            // The old file is still mapped; the move is finished on the next start
+        }
+
+        return load(active);
+    }
+
+    /**
+     * Completes a compaction interrupted before its final move and drops a
+     * partial one, returning the file to load.
+     */
+    private File finishCompaction() throws IOException {
+        File compacted = sibling(".compact");
+
+        Files.deleteIfExists(sibling(".tmp").toPath());
+
+        if (!compacted.exists()) return file;
+
+        try {
+            Files.move(
+                    compacted.toPath(),
+                    file.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING
+            );
+
+            return file;
+        } catch (IOException e) {
+            System.out.println("Unable to replace " + file + " with its compacted copy: " + e);
+            return compacted;
+        }
+    }
+
+    /**
+     * Returns the size the live records take once compacted, with their version record.
+     */
+    private static long liveBytes(Map<String, ByteBuffer> records) {
+        long bytes = HEADER_SIZE + 3 + 8;
+
+        for (Map.Entry<String, ByteBuffer> record : records.entrySet()) {
+            bytes += HEADER_SIZE + 3
+                    + record.getKey().getBytes(StandardCharsets.UTF_8).length
+                    + record.getValue().remaining();
+        }
+
+        return bytes;
+    }
+
+    private File sibling(String suffix) {
+        return new File(file.getPath() + suffix);
+    }
+
+    /**
+     * Returns the gallery version stored in the file, 0 if none was written yet.
+     */
+    synchronized long version() {
+        return version;
+    }
+
+    /**
+     * Indicates whether a damaged tail was found and discarded on open.
+     */
+    synchronized boolean recoveredTornTail() {
+        return tornTail;
+    }
+
+    /**
+     * Appends the deletions, then the templates, then the new version, syncing
+     * the file once; on reload the write is applied entirely or not at all.
+     *
+     * <p>The whole write is encoded, and every record validated, before
+     * anything reaches the file. If writing fails, the bytes already written
+     * are zeroed and the next write starts at the same position, so a later
+     * version record can never commit them.</p>
+     *
+     * @throws IllegalArgumentException if a record exceeds the limits of {@link #checkRecord}
+     */
+    synchronized void write(
+            List<String> deletes,
+            List<String> ids,
+            List<byte[]> templates,
+            long newVersion
+    ) throws IOException {
+        List<byte[]> records = new ArrayList<>(deletes.size() + ids.size() + 1);
+
+        for (String id : deletes) {
+            records.add(encode(OP_DELETE, id, new byte[0]));
+        }
+
+        for (int i = 0; i < ids.size(); i++) {
+            records.add(encode(OP_PUT, ids.get(i), templates.get(i)));
+        }
+
+        records.add(encode(OP_VERSION, "", ByteBuffer.allocate(8).putLong(newVersion).array()));
+
+        int size = 0;
+        for (byte[] record : records) size += record.length;
+
+        ByteBuffer batch = ByteBuffer.allocate(size);
+        for (byte[] record : records) batch.put(record);
+        batch.flip();
+
+        if (appendPosition + size > Integer.MAX_VALUE) {
+            throw new IOException("Gallery file would exceed 2 GB; restart the service to compact it");
+        }
+
+        long start = appendPosition;
+
+        try {
+            while (batch.hasRemaining()) {
+                appendPosition += channel.write(batch, appendPosition);
+            }
+
+            channel.force(false);
+        } catch (IOException e) {
+            rollback(start, e);
+            throw e;
+        }
+
+        version = newVersion;
+    }
+
+    /**
+     * Checks that a template record fits the file format.
+     *
+     * @throws IllegalArgumentException if the id or the record is too long
+     */
+    static void checkRecord(String id, byte[] template) {
+        int idLength = id.getBytes(StandardCharsets.UTF_8).length;
+
+        if (idLength > 0xFFFF) {
+            throw new IllegalArgumentException("Gallery id too long");
+        }
+
+        if (3L + idLength + template.length > MAX_PAYLOAD) {
+            throw new IllegalArgumentException("Gallery record too large");
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) channel.close();
+    }
+
+    /**
+     * Frames one record, with its checksum.
+     */
+    private static byte[] encode(byte operation, String id, byte[] template) {
+        checkRecord(id, template);
+
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        int length = 3 + idBytes.length + template.length;
+
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + length);
+        record.putInt(RECORD_MAGIC);
+        record.putInt(length);
+        record.putInt(0);
+        record.put(operation);
+        record.putShort((short) idBytes.length);
+        record.put(idBytes);
+        record.put(template);
+
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_SIZE, length);
+        record.putInt(8, (int) crc.getValue());
+
+        return record.array();
+    }
+
+    /**
+     * Zeroes the part of a failed write that reached the file and rewinds to its start.
+     */
+    private void rollback(long start, IOException failure) {
+        long written = appendPosition;
+        appendPosition = start;
+
+        try {
+            ByteBuffer zeros = ByteBuffer.allocate(4096);
+            long position = start;
+
+            while (position < written) {
+                zeros.clear();
+                zeros.limit((int) Math.min(zeros.capacity(), written - position));
+                position += channel.write(zeros, position);
+            }
+        } catch (IOException e) {
+            // Best effort; reported along with the failed write
+            failure.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Applies pending records in file order; a {@code null} template is a deletion.
+     */
+    private static void apply(Map<String, ByteBuffer> records, List<String> ids, List<ByteBuffer> templates) {
+        for (int i = 0; i < ids.size(); i++) {
+            records.remove(ids.get(i));
+            if (templates.get(i) != null) records.put(ids.get(i), templates.get(i));
+        }
+
+        ids.clear();
+        templates.clear();
+    }
+
+    private ByteBuffer slice(long offset, int length) {
+        ByteBuffer view = mapped.duplicate();
+        view.position((int) offset);
+        view.limit((int) offset + length);
+        return view.slice();
+    }
+
+    private void zeroTail(long size) throws IOException {
+        ByteBuffer zeros = ByteBuffer.allocate(4096);
+        long position = appendPosition;
+
+        while (position < size) {
+            zeros.clear();
+            zeros.limit((int) Math.min(zeros.capacity(), size - position));
+            position += channel.write(zeros, position);
+        }
+
+        channel.force(false);
+    }
+}
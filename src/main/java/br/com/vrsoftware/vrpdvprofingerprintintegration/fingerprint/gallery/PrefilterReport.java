@@ -0,0 +1,171 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.gallery;
+
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.model.FingerprintCandidate;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.model.FingerprintIdentifyResult;
+import com.machinezoo.sourceafis.FingerprintTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recall-versus-speed comparison of prefiltered identification against a full scan.
+ *
+ * <p>Every probe is first identified against the whole gallery. Probes whose
+ * best full-scan score reaches {@link FingerprintIdentifier#MATCH_THRESHOLD}
+ * count as genuine; for each candidate fraction, recall is the share of
+ * genuine probes whose full-scan best candidate is still found first.</p>
+ */
+public final class PrefilterReport {
+
+    private final int probes;
+    private final int genuine;
+    private final List<Row> rows;
+
+    private PrefilterReport(int probes, int genuine, List<Row> rows) {
+        this.probes = probes;
+        this.genuine = genuine;
+        this.rows = rows;
+    }
+
+    /**
+     * Runs the comparison for each candidate fraction.
+     */
+    public static PrefilterReport run(
+            FingerprintIdentifier identifier,
+            List<FingerprintTemplate> probes,
+            double[] fractions
+    ) {
+        String[] expected = new String[probes.size()];
+        long fullNanos = 0;
+        int genuine = 0;
+
+        for (int i = 0; i < expected.length; i++) {
+            long start = System.nanoTime();
+            FingerprintIdentifyResult full = identifier.identify(probes.get(i), 1, 0, Double.NaN, 1);
+            fullNanos += System.nanoTime() - start;
+
+            FingerprintCandidate best = best(full);
+
+            if (best != null && best.score() >= FingerprintIdentifier.MATCH_THRESHOLD) {
+                expected[i] = best.id();
+                genuine++;
+            }
+        }
+
+        double fullMillis = average(fullNanos, expected.length) / 1_000_000.0;
+        List<Row> rows = new ArrayList<>();
+
+        for (double fraction : fractions) {
+            long nanos = 0;
+            long compared = 0;
+            int found = 0;
+
+            for (int i = 0; i < expected.length; i++) {
+                long start = System.nanoTime();
+                FingerprintIdentifyResult result = identifier.identify(probes.get(i), 1, 0, Double.NaN, fraction);
+                nanos += System.nanoTime() - start;
+                compared += result.compared();
+
+                FingerprintCandidate best = best(result);
+
+                if (expected[i] != null && best != null && expected[i].equals(best.id())) found++;
+            }
+
+            double millis = average(nanos, expected.length) / 1_000_000.0;
+
+            rows.add(new Row(
+                    fraction,
+                    genuine == 0 ? 1 : (double) found / genuine,
+                    millis,
+                    average(compared, expected.length),
+                    millis == 0 ? 1 : fullMillis / millis
+            ));
+        }
+
+        return new PrefilterReport(expected.length, genuine, rows);
+    }
+
+    /**
+     * Returns the number of probes evaluated.
+     */
+    public int probes() {
+        return probes;
+    }
+
+    /**
+     * Returns the number of probes with a genuine match in the full scan.
+     */
+    public int genuine() {
+        return genuine;
+    }
+
+    /**
+     * Returns one row per candidate fraction.
+     */
+    public List<Row> rows() {
+        return rows;
+    }
+
+    private static FingerprintCandidate best(FingerprintIdentifyResult result) {
+        return result.candidates().isEmpty() ? null : result.candidates().get(0);
+    }
+
+    private static double average(long total, int count) {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    /**
+     * Measurements for a single candidate fraction.
+     */
+    public static final class Row {
+
+        private final double fraction;
+        private final double recall;
+        private final double averageMillis;
+        private final double averageCompared;
+        private final double speedup;
+
+        Row(double fraction, double recall, double averageMillis, double averageCompared, double speedup) {
+            this.fraction = fraction;
+            this.recall = recall;
+            this.averageMillis = averageMillis;
+            this.averageCompared = averageCompared;
+            this.speedup = speedup;
+        }
+
+        /**
+         * Returns the candidate fraction measured.
+         */
+        public double fraction() {
+            return fraction;
+        }
+
+        /**
+         * Returns the share of genuine probes still identified correctly.
+         */
+        public double recall() {
+            return recall;
+        }
+
+        /**
+         * Returns the average identification time, in milliseconds.
+         */
+        public double averageMillis() {
+            return averageMillis;
+        }
+
+        /**
+         * Returns the average number of full comparisons per probe.
+         */
+        public double averageCompared() {
+            return averageCompared;
+        }
+
+        /**
+         * Returns how many times faster than the full scan this fraction ran.
+         */
+        public double speedup() {
+            return speedup;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.gallery;
+
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.template.TemplateCodec;
+
+/**
+ * Cheap global descriptor of a template used to rank gallery candidates
+ * before full SourceAFIS matching.
+ *
+ * <p>The vector holds the minutiae count, a histogram of minutia directions,
+ * the bifurcation ratio and the spread of minutiae around their centroid.
+ * Two impressions of the same finger tend to be close under
+ * {@link #distance(float[], float[])}; the descriptor is only a ranking
+ * hint and never decides a match on its own.</p>
+ */
+final class TemplateFeatures {
+
+    private static final int DIRECTION_BINS = 8;
+
+    static final int LENGTH = DIRECTION_BINS + 3;
+
+    private static final int COUNT = 0;
+    private static final int HISTOGRAM = 1;
+    private static final int BIFURCATION_RATIO = HISTOGRAM + DIRECTION_BINS;
+    private static final int SPREAD = BIFURCATION_RATIO + 1;
+
+    /**
+     * Scales bring every component to roughly the same 0..1 range.
+     */
+    private static final float COUNT_SCALE = 1f / 60;
+    private static final float SPREAD_SCALE = 1f / 150;
+
+    private TemplateFeatures() {
+    }
+
+    /**
+     * Computes the descriptor of a set of minutiae.
+     */
+    static float[] of(TemplateCodec.Minutiae minutiae) {
+        float[] features = new float[LENGTH];
+        int count = minutiae.count();
+
+        features[COUNT] = count * COUNT_SCALE;
+        if (count == 0) return features;
+
+        double centroidX = 0;
+        double centroidY = 0;
+        int bifurcations = 0;
+
+        for (int i = 0; i < count; i++) {
+            double turn = minutiae.direction[i] / (2 * Math.PI);
+            int bin = (int) ((turn - Math.floor(turn)) * DIRECTION_BINS) % DIRECTION_BINS;
+
+            features[HISTOGRAM + bin] += 1f / count;
+
+            if (minutiae.bifurcation[i]) bifurcations++;
+
+            centroidX += minutiae.x[i];
+            centroidY += minutiae.y[i];
+        }
+
+        centroidX /= count;
+        centroidY /= count;
+
+        double spread = 0;
+
+        for (int i = 0; i < count; i++) {
+            spread += Math.hypot(minutiae.x[i] - centroidX, minutiae.y[i] - centroidY);
+        }
+
+        features[BIFURCATION_RATIO] = (float) bifurcations / count;
+        features[SPREAD] = (float) (spread / count) * SPREAD_SCALE;
+
+        return features;
+    }
+
+    /**
+     * Returns the L1 distance between two descriptors.
+     */
+    static float distance(float[] a, float[] b) {
+        float distance = 0;
+
+        for (int i = 0; i < LENGTH; i++) {
+            distance += Math.abs(a[i] - b[i]);
+        }
+
+        return distance;
+    }
+}
@@ -0,0 +1,135 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.image;
+
+import com.machinezoo.sourceafis.FingerprintTemplate;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Template extraction running beside a reader's frame grabbing.
+ *
+ * <p>Frames are queued to one worker thread per reader, so the SDK keeps
+ * delivering frames while the previous candidate is extracted. The queue
+ * holds {@code fingerprint.extraction.queue} frames; a frame that does not
+ * fit is extracted by the caller of {@link Job#await()} instead. A job is
+ * cancelled without being extracted when a better frame replaces it before
+ * the worker picks it up.</p>
+ */
+public final class ExtractionPipeline {
+
+    private static final int QUEUE = Integer.getInteger("fingerprint.extraction.queue", 2);
+
+    private final RawImageExtractor extractor = new RawImageExtractor();
+    private final ThreadPoolExecutor worker;
+
+    /**
+     * Creates the pipeline and its worker thread, named after the reader.
+     */
+    public ExtractionPipeline(String name) {
+        worker = new ThreadPoolExecutor(
+                1,
+                1,
+                0,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, QUEUE)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "Extraction - " + name);
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    /**
+     * Queues the extraction of a grayscale frame.
+     *
+     * @param release returns {@code pixels} to their pool once the job no longer needs them
+     */
+    public Job submit(byte[] pixels, int width, int height, double dpi, Runnable release) {
+        Job job = new Job(pixels, width, height, dpi, release);
+
+        try {
+            worker.execute(job::run);
+        } catch (RejectedExecutionException e) {
+            // Extracted on await by the capture thread
+        }
+
+        return job;
+    }
+
+    /**
+     * Stops the worker thread; queued jobs still finish.
+     */
+    public void shutdown() {
+        worker.shutdown();
+    }
+
+    /**
+     * The extraction of one frame.
+     */
+    public final class Job {
+
+        private final byte[] pixels;
+        private final int width;
+        private final int height;
+        private final double dpi;
+        private final Runnable release;
+
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CompletableFuture<FingerprintTemplate> result = new CompletableFuture<>();
+
+        private Job(byte[] pixels, int width, int height, double dpi, Runnable release) {
+            this.pixels = pixels;
+            this.width = width;
+            this.height = height;
+            this.dpi = dpi;
+            this.release = release;
+        }
+
+        /**
+         * Drops the job if no thread has started it; a running extraction is left to finish.
+         */
+        public void cancel() {
+            if (claimed.compareAndSet(false, true)) {
+                release.run();
+                result.cancel(false);
+            }
+        }
+
+        /**
+         * Waits for the template, extracting it on the calling thread if the worker has not started it.
+         */
+        public FingerprintTemplate await() throws Exception {
+            run();
+
+            try {
+                return result.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+
+                if (cause instanceof Exception) throw (Exception) cause;
+                if (cause instanceof Error) throw (Error) cause;
+
+                throw e;
+            }
+        }
+
+        private void run() {
+            if (!claimed.compareAndSet(false, true)) return;
+
+            try {
+                result.complete(extractor.extract(pixels, width, height, dpi));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            } finally {
+                release.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.image;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Reusable pixel buffers for frames copied out of an SDK callback.
+ *
+ * <p>Buffers of the sensor size are handed out and taken back, so a steady
+ * stream of captures stops allocating once the pool is warm. Buffers of
+ * another size are dropped on release, and at most {@code maxIdle} are
+ * kept. Thread-safe: buffers are released by the extraction worker.</p>
+ */
+public final class FrameBufferPool {
+
+    private final int maxIdle;
+    private final Deque<byte[]> idle = new ArrayDeque<>();
+
+    private int size;
+    private long allocations;
+
+    /**
+     * Creates a pool keeping at most {@code maxIdle} idle buffers.
+     */
+    public FrameBufferPool(int maxIdle) {
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Returns a buffer of exactly {@code size} bytes, allocating only when none is idle.
+     */
+    public synchronized byte[] acquire(int size) {
+        if (size != this.size) {
+            idle.clear();
+            this.size = size;
+        }
+
+        byte[] buffer = idle.pollFirst();
+        if (buffer != null) return buffer;
+
+        allocations++;
+        return new byte[size];
+    }
+
+    /**
+     * Returns a buffer to the pool.
+     */
+    public synchronized void release(byte[] buffer) {
+        if (buffer.length == size && idle.size() < maxIdle) idle.addFirst(buffer);
+    }
+
+    /**
+     * Returns the number of buffers allocated since the pool was created.
+     */
+    public synchronized long allocations() {
+        return allocations;
+    }
+}
@@ -0,0 +1,176 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.image;
+
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.FingerprintErrorCodes;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.FingerprintException;
+
+import java.util.Arrays;
+
+/**
+ * Finds the fingerprint in a grayscale sensor image before extraction.
+ *
+ * <p>Ridges make the foreground locally high-contrast, while the empty
+ * sensor around the finger is flat. The image is split in square blocks of
+ * {@code fingerprint.preprocess.blockSize} pixels; blocks whose gray-level
+ * variance reaches {@code fingerprint.preprocess.minVariance} are foreground,
+ * and their bounding box grown by {@code fingerprint.preprocess.margin}
+ * pixels is the region handed to SourceAFIS, whose cost grows with the
+ * pixel count.</p>
+ *
+ * <p>A blank or smudged frame is rejected with {@code BLANK_IMAGE} before
+ * extraction: first by the variance of a sparse pixel sample, then when
+ * less than {@code fingerprint.preprocess.minForeground} of the blocks are
+ * foreground. {@code fingerprint.preprocess.enabled=false} keeps the whole
+ * image and skips the checks.</p>
+ */
+public final class ImagePreprocessor {
+
+    private static final String PREFIX = "fingerprint.preprocess.";
+
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty(PREFIX + "enabled", "true"));
+    private static final int BLOCK_SIZE = Math.max(4, Integer.getInteger(PREFIX + "blockSize", 16));
+    private static final double MIN_VARIANCE = Double.parseDouble(System.getProperty(PREFIX + "minVariance", "100"));
+    private static final double MIN_FOREGROUND = Double.parseDouble(System.getProperty(PREFIX + "minForeground", "0.05"));
+    private static final int MARGIN = Integer.getInteger(PREFIX + "margin", 16);
+
+    /**
+     * Pixel step of the sparse sample used by the fast blank check.
+     */
+    private static final int SAMPLE_STEP = 4;
+
+    private ImagePreprocessor() {
+    }
+
+    /**
+     * Returns the region of a top-down, row-major grayscale image holding the fingerprint.
+     *
+     * @throws FingerprintException {@code BLANK_IMAGE} if no fingerprint is found
+     */
+    public static Region crop(byte[] pixels, int width, int height) {
+        Region whole = new Region(0, 0, width, height);
+        if (!ENABLED) return whole;
+
+        if (sampledVariance(pixels, width, height) < MIN_VARIANCE) throw blank();
+
+        int columns = (width + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int rows = (height + BLOCK_SIZE - 1) / BLOCK_SIZE;
+
+        long[] sums = new long[columns];
+        long[] squares = new long[columns];
+
+        int minColumn = columns;
+        int maxColumn = -1;
+        int minRow = rows;
+        int maxRow = -1;
+        int foreground = 0;
+
+        for (int row = 0; row < rows; row++) {
+            int top = row * BLOCK_SIZE;
+            int bottom = Math.min(top + BLOCK_SIZE, height);
+
+            Arrays.fill(sums, 0);
+            Arrays.fill(squares, 0);
+
+            for (int y = top; y < bottom; y++) {
+                int offset = y * width;
+
+                for (int x = 0; x < width; x++) {
+                    int value = pixels[offset + x] & 0xFF;
+                    int column = x / BLOCK_SIZE;
+
+                    sums[column] += value;
+                    squares[column] += value * value;
+                }
+            }
+
+            for (int column = 0; column < columns; column++) {
+                int blockWidth = Math.min(BLOCK_SIZE, width - column * BLOCK_SIZE);
+                double count = (double) blockWidth * (bottom - top);
+                double mean = sums[column] / count;
+
+                if (squares[column] / count - mean * mean < MIN_VARIANCE) continue;
+
+                foreground++;
+                minColumn = Math.min(minColumn, column);
+                maxColumn = Math.max(maxColumn, column);
+                minRow = Math.min(minRow, row);
+                maxRow = Math.max(maxRow, row);
+            }
+        }
+
+        if (foreground < MIN_FOREGROUND * columns * rows) throw blank();
+
+        int left = Math.max(0, minColumn * BLOCK_SIZE - MARGIN);
+        int top = Math.max(0, minRow * BLOCK_SIZE - MARGIN);
+        int right = Math.min(width, (maxColumn + 1) * BLOCK_SIZE + MARGIN);
+        int bottom = Math.min(height, (maxRow + 1) * BLOCK_SIZE + MARGIN);
+
+        return new Region(left, top, right - left, bottom - top);
+    }
+
+    /**
+     * Returns the gray-level variance of every {@link #SAMPLE_STEP}-th pixel of every {@link #SAMPLE_STEP}-th row.
+     */
+    private static double sampledVariance(byte[] pixels, int width, int height) {
+        long sum = 0;
+        long squares = 0;
+        long count = 0;
+
+        for (int y = 0; y < height; y += SAMPLE_STEP) {
+            int offset = y * width;
+
+            for (int x = 0; x < width; x += SAMPLE_STEP) {
+                int value = pixels[offset + x] & 0xFF;
+
+                sum += value;
+                squares += value * value;
+                count++;
+            }
+        }
+
+        if (count == 0) return 0;
+
+        double mean = (double) sum / count;
+        return (double) squares / count - mean * mean;
+    }
+
+    private static FingerprintException blank() {
+        return new FingerprintException(
+                FingerprintErrorCodes.BLANK_IMAGE,
+                "No fingerprint found in the captured image"
+        );
+    }
+
+    /**
+     * A rectangle of an image, in pixels.
+     */
+    public static final class Region {
+
+        private final int x;
+        private final int y;
+        private final int width;
+        private final int height;
+
+        Region(int x, int y, int width, int height) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+
+        public int x() {
+            return x;
+        }
+
+        public int y() {
+            return y;
+        }
+
+        public int width() {
+            return width;
+        }
+
+        public int height() {
+            return height;
+        }
+    }
+}
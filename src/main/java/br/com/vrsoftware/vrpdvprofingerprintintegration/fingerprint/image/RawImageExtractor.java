@@ -0,0 +1,148 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.image;
+
+import br.com.vrsoftware.vrpdvprofingerprintintegration.metrics.CaptureStage;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.metrics.Metrics;
+import com.machinezoo.sourceafis.FingerprintTemplate;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Extracts SourceAFIS templates straight from raw 8-bit grayscale sensor buffers.
+ *
+ * <p>SourceAFIS 2.x only accepts encoded images, so the raw buffer is framed
+ * as an uncompressed 8-bit BMP written directly into a pooled byte array.
+ * This skips the intermediate {@code BufferedImage}, the {@code ImageIO}
+ * encoder and the {@code ByteArrayOutputStream} copy, and reuses the same
+ * buffer on every capture of the same sensor size.</p>
+ *
+ * <p>Only the fingerprint region found by {@link ImagePreprocessor} is
+ * framed, and blank frames are rejected before SourceAFIS runs.</p>
+ */
+public final class RawImageExtractor {
+
+    private static final int FILE_HEADER_SIZE = 14;
+    private static final int INFO_HEADER_SIZE = 40;
+    private static final int PALETTE_SIZE = 256 * 4;
+    private static final int HEADER_SIZE = FILE_HEADER_SIZE + INFO_HEADER_SIZE + PALETTE_SIZE;
+
+    private static final double INCHES_PER_METER = 39.3701;
+
+    private final AtomicReference<byte[]> pooled = new AtomicReference<>();
+    private final Metrics metrics;
+
+    public RawImageExtractor() {
+        this(Metrics.shared());
+    }
+
+    /**
+     * Creates an extractor that records its stage latencies in {@code metrics}.
+     */
+    public RawImageExtractor(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Extracts a template from a top-down, row-major grayscale buffer.
+     *
+     * @param pixels one byte per pixel, {@code width * height} bytes
+     * @param width  image width in pixels
+     * @param height image height in pixels
+     * @param dpi    sensor resolution in dots per inch
+     * @throws br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.FingerprintException
+     *         {@code BLANK_IMAGE} if the image holds no fingerprint
+     */
+    public FingerprintTemplate extract(byte[] pixels, int width, int height, double dpi) {
+        if (pixels.length < width * height) {
+            throw new IllegalArgumentException("Image buffer smaller than " + width + "x" + height);
+        }
+
+        long start = System.nanoTime();
+        ImagePreprocessor.Region region = ImagePreprocessor.crop(pixels, width, height);
+        metrics.stage(CaptureStage.PREPROCESS).recordSince(start);
+
+        int stride = (region.width() + 3) & ~3;
+        int size = HEADER_SIZE + stride * region.height();
+
+        start = System.nanoTime();
+        byte[] bitmap = acquire(size);
+
+        try {
+            writeHeader(bitmap, region.width(), region.height(), stride, dpi);
+
+            // BMP rows are stored bottom-up and padded to 4 bytes
+            for (int row = 0; row < region.height(); row++) {
+                System.arraycopy(
+                        pixels, (region.y() + row) * width + region.x(),
+                        bitmap, HEADER_SIZE + (region.height() - 1 - row) * stride,
+                        region.width()
+                );
+            }
+
+            metrics.stage(CaptureStage.ENCODE).recordSince(start);
+
+            start = System.nanoTime();
+            FingerprintTemplate template = new FingerprintTemplate(bitmap, dpi);
+            metrics.stage(CaptureStage.EXTRACTION).recordSince(start);
+
+            return template;
+        } finally {
+            pooled.set(bitmap);
+        }
+    }
+
+    private byte[] acquire(int size) {
+        byte[] buffer = pooled.getAndSet(null);
+
+        if (buffer == null || buffer.length != size) {
+            buffer = new byte[size];
+            writePalette(buffer);
+        }
+
+        return buffer;
+    }
+
+    private static void writeHeader(byte[] bitmap, int width, int height, int stride, double dpi) {
+        int pixelsPerMeter = (int) Math.round(dpi * INCHES_PER_METER);
+
+        bitmap[0] = 'B';
+        bitmap[1] = 'M';
+        writeInt(bitmap, 2, bitmap.length);
+        writeInt(bitmap, 6, 0);
+        writeInt(bitmap, 10, HEADER_SIZE);
+
+        writeInt(bitmap, 14, INFO_HEADER_SIZE);
+        writeInt(bitmap, 18, width);
+        writeInt(bitmap, 22, height);
+        writeShort(bitmap, 26, 1);
+        writeShort(bitmap, 28, 8);
+        writeInt(bitmap, 30, 0);
+        writeInt(bitmap, 34, stride * height);
+        writeInt(bitmap, 38, pixelsPerMeter);
+        writeInt(bitmap, 42, pixelsPerMeter);
+        writeInt(bitmap, 46, 256);
+        writeInt(bitmap, 50, 0);
+    }
+
+    private static void writePalette(byte[] bitmap) {
+        int offset = FILE_HEADER_SIZE + INFO_HEADER_SIZE;
+
+        for (int i = 0; i < 256; i++) {
+            bitmap[offset++] = (byte) i;
+            bitmap[offset++] = (byte) i;
+            bitmap[offset++] = (byte) i;
+            bitmap[offset++] = 0;
+        }
+    }
+
+    private static void writeInt(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) value;
+        buffer[offset + 1] = (byte) (value >>> 8);
+        buffer[offset + 2] = (byte) (value >>> 16);
+        buffer[offset + 3] = (byte) (value >>> 24);
+    }
+
+    private static void writeShort(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) value;
+        buffer[offset + 1] = (byte) (value >>> 8);
+    }
+}
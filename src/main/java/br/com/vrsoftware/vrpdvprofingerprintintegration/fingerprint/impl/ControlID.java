@@ -5,216 +5,128 @@ import CIDBio.ConfigParam;
 import CIDBio.RetCode;
 import CIDBio.Image;
 
-import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.Fingerprint;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.capture.CaptureListener;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.device.CaptureAttempt;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.device.DeviceActor;
 import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.FingerprintErrorCodes;
 import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.FingerprintException;
-import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.model.FingerprintMatchResult;
-import com.machinezoo.sourceafis.FingerprintMatcher;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.image.RawImageExtractor;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.model.FingerprintType;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.metrics.CaptureStage;
 import com.machinezoo.sourceafis.FingerprintTemplate;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * Fingerprint implementation for Control iD devices.
+ *
+ * <p>All CIDBio calls run on the {@link DeviceActor} thread, except
+ * {@code CancelCapture}, which the SDK provides to unblock a capture
+ * from another thread.</p>
  */
-public class ControlID implements Fingerprint {
-    private boolean sdkInitialized = false;
-    private boolean readerConnected = false;
-    private boolean captureCompleted = false;
-    private boolean awaitingCapture = false;
+public class ControlID extends DeviceActor {
 
-    private ThreadReading threadReading = new ThreadReading();
-    private final List<FingerprintTemplate> fingerprintsCaptured = new ArrayList<>();
+    /**
+     * Interval between polls of the sensor, in milliseconds.
+     */
+    private static final long POLL_INTERVAL_MS = 50;
 
-    private CIDBio scanner;
+    private final RawImageExtractor extractor = new RawImageExtractor();
 
-    @Override
-    public boolean hasFingerprintCapture() {  return !fingerprintsCaptured.isEmpty(); }
+    private volatile CIDBio scanner;
 
-    @Override
-    public String fingerprintCaptured() {
-        if (fingerprintsCaptured.isEmpty()) return "";
-
-        return fingerprintsCaptured.get(fingerprintsCaptured.size() - 1).json();
+    public ControlID() {
+        super("ControlID");
     }
 
     @Override
-    public void initialize() {
-
-        if (sdkInitialized) return;
-
-        scanner = new CIDBio();
-        RetCode ret =  CIDBio.Init();
+    protected void open() {
+        CIDBio reader = new CIDBio();
+        RetCode ret = CIDBio.Init();
 
         if (ret != RetCode.SUCCESS && ret != RetCode.WARNING_ALREADY_INIT) {
-            sdkInitialized = false;
-            readerConnected = false;
-
             throw new FingerprintException(
                     FingerprintErrorCodes.SDK_INIT_FAILED,
                     "Unable to initialize fingerprint reader"
             );
         }
 
-        readerConnected = true;
-        sdkInitialized = true;
-        awaitingCapture = false;
+        reader.SetParameter(ConfigParam.BUZZER_ON, "0");
+        reader.SetParameter(ConfigParam.DETECT_TIMEOUT, "3000");
 
-        scanner.SetParameter(ConfigParam.BUZZER_ON, "0");
-        scanner.SetParameter(ConfigParam.DETECT_TIMEOUT, "3000");
+        scanner = reader;
     }
 
     @Override
-    public void startCapture()  {
-        if (awaitingCapture) return;
-
-        if (!sdkInitialized) {
-            throw new FingerprintException(
-                    FingerprintErrorCodes.READER_NOT_CONNECTED,
-                    "Unable to connect to reader"
-            );
-        }
-
-        fingerprintsCaptured.clear();
-        awaitingCapture = true;
-
-        if (threadReading.isAlive()) threadReading.interrupt();
+    protected void close() {
+        RetCode ret = CIDBio.Terminate();
 
-        threadReading = new ThreadReading();
-        threadReading.setName("ThreadReading - ControlID");
-        threadReading.start();
+        if (ret != RetCode.SUCCESS) CIDBio.Terminate();
     }
 
     @Override
-    public void stopCapture() {
-       if (!awaitingCapture) return;
-
-       if (threadReading.isAlive()) threadReading.interrupt();
-
-       fingerprintsCaptured.clear();
-       awaitingCapture = false;
+    protected void abortCapture() {
+        CIDBio reader = scanner;
+        if (reader != null) reader.CancelCapture();
     }
 
+    /**
+     * Returns 1: the SDK keeps a single global connection, so only one reader is driven.
+     */
     @Override
-    public void shutdown() throws Exception{
-        if (!sdkInitialized || !readerConnected) {
-            throw new FingerprintException(
-                    FingerprintErrorCodes.READER_NOT_CONNECTED,
-                    "Unable to connect to reader"
-            );
-        }
-
-        if (awaitingCapture) {
-            if (threadReading.isAlive()) threadReading.interrupt();
-            fingerprintsCaptured.clear();
-            awaitingCapture = false;
-        }
-
-        while(!captureCompleted) {
-            scanner.CancelCapture();
-            Thread.sleep(1000);
-            captureCompleted = true;
-        }
-
-        RetCode ret = CIDBio.Terminate();
-
-        readerConnected = false;
-        sdkInitialized = false;
-
-        if (ret != RetCode.SUCCESS) CIDBio.Terminate();
+    protected int enumerate() {
+        return 1;
     }
 
+    /**
+     * Checks that the reader still answers a device information request.
+     */
     @Override
-    public FingerprintMatchResult match(String capturedTemplate, String storedTemplate) {
-        try {
-            FingerprintTemplate fpCaptured = new FingerprintTemplate(capturedTemplate);
-            FingerprintTemplate fpStored = new FingerprintTemplate(storedTemplate);
-            FingerprintMatcher fm = new FingerprintMatcher(fpCaptured);
-
-            double score = fm.match(fpStored);
-            int margin = 10;
-
-            double threshold = Fingerprint.DEFAULT_THRESHOLD - margin;
-            boolean matched = score >= threshold;
-
-            return new FingerprintMatchResult(matched, score);
-        } catch (Exception ex) {
-            throw new FingerprintException(
-                    FingerprintErrorCodes.MATCH_FAILED,
-                    "Fingerprint match failed"
-            );
-        }
+    protected boolean probe() {
+        return scanner.GetDeviceInfo().getRetCode() == RetCode.SUCCESS;
     }
 
     /**
-     * Thread responsible for capturing a single fingerprint.
-     *
-     * <p>Waits until the reader is ready, performs capture attempts
-     * and stores the resulting template when successful.</p>
+     * Waits for the previous finger to leave the sensor, then captures
+     * until an image is accepted.
      */
-    private class ThreadReading extends Thread {
-
-        /**
-         * Capture execution loop.
-         */
-        @Override
-        public void run() {
-            try {
-                captureCompleted = false;
-
-                while (scanner.CheckFingerprint().getRetCode() == RetCode.SUCCESS) {
-                    Thread.sleep(50);
-                }
-
-                while (awaitingCapture && !Thread.currentThread().isInterrupted()) {
-                    Image oBitMap = scanner.CaptureImage();
-
-                    if (oBitMap.getRetCode() == RetCode.SUCCESS) {
-                        byte[] rawImage = oBitMap.getImageBuffer();
-
-                        BufferedImage img = new BufferedImage(
-                                oBitMap.getWidth(),
-                                oBitMap.getHeight(),
-                                BufferedImage.TYPE_BYTE_GRAY
-                        );
-
-                        img.getRaster().setDataElements(
-                                0, 0,
-                                oBitMap.getWidth(),
-                                oBitMap.getHeight(),
-                                rawImage
-                        );
-
-                        byte[] bitmapBytes;
-                        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-                            ImageIO.write(img, "bmp", outputStream);
-                            bitmapBytes = outputStream.toByteArray();
-                        }
-
-                        FingerprintTemplate fp = new FingerprintTemplate(bitmapBytes);
-                        fingerprintsCaptured.clear();
-                        fingerprintsCaptured.add(fp);
+    @Override
+    protected FingerprintTemplate capture(CaptureAttempt attempt) throws Exception {
+        long waitStart = System.nanoTime();
 
-                        break;
-                    }
+        while (scanner.CheckFingerprint().getRetCode() == RetCode.SUCCESS) {
+            if (attempt.awaitCancel(POLL_INTERVAL_MS)) return null;
+        }
 
-                    Thread.sleep(50);
+        while (!attempt.cancelled()) {
+            long grabStart = System.nanoTime();
+            Image oBitMap = scanner.CaptureImage();
+
+            if (oBitMap.getRetCode() == RetCode.SUCCESS) {
+                // CaptureImage blocks until a finger is detected, so its last call is the grab
+                metrics.stage(CaptureStage.FINGER_WAIT).record(grabStart - waitStart);
+                metrics.stage(CaptureStage.IMAGE_GRAB).recordSince(grabStart);
+
+                CaptureListener listener = attempt.listener();
+                listener.onFingerDetected();
+                listener.onExtractionStarted();
+
+                try {
+                    return extractor.extract(
+                            oBitMap.getImageBuffer(),
+                            oBitMap.getWidth(),
+                            oBitMap.getHeight(),
+                            FingerprintType.CONTROLID.dpi()
+                    );
+                } catch (FingerprintException e) {
+                    // A blank or smudged frame is not worth failing the capture; grab another
+                    if (!FingerprintErrorCodes.BLANK_IMAGE.equals(e.getCode())) throw e;
+
+                    metrics.error(e.getCode());
                 }
-
-            } catch (Exception ex) {
-                readerConnected = false;
-                throw new FingerprintException(
-                        FingerprintErrorCodes.CAPTURE_FAILED,
-                        "Capture failed"
-                );
-            } finally {
-                awaitingCapture = false;
-                captureCompleted = true;
             }
+
+            if (attempt.awaitCancel(POLL_INTERVAL_MS)) return null;
         }
+
+        return null;
     }
 }
@@ -2,29 +2,53 @@ package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.impl;
 
 import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.FingerprintErrorCodes;
 import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.FingerprintException;
-import com.machinezoo.sourceafis.FingerprintMatcher;
 import com.machinezoo.sourceafis.FingerprintTemplate;
 import com.nitgen.SDK.BSP.NBioBSPJNI;
-import java.io.ByteArrayOutputStream;
-import java.util.ArrayList;
-import java.util.List;
 
-import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.Fingerprint;
-import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.model.FingerprintMatchResult;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.capture.CaptureListener;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.device.CaptureAttempt;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.device.DeviceActor;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.device.SampleSelector;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.image.ExtractionPipeline;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.image.FrameBufferPool;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.model.FingerprintType;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.metrics.CaptureStage;
 
-import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 
 /**
  * Fingerprint implementation for Hamster DX devices.
+ *
+ * <p>All NBioBSP calls, including the capture callback, run on the
+ * {@link DeviceActor} thread. A cancelled capture ends at the next
+ * callback, which answers {@code USER_CANCEL}.</p>
+ *
+ * <p>Frames are scored by their reported quality, see {@link SampleSelector}.
+ * The callback only copies a new best frame into a pooled buffer and queues
+ * it to an {@link ExtractionPipeline}, so extraction overlaps with the SDK
+ * grabbing the next frames. The {@code FIR_HANDLE} is allocated once per
+ * connection and reused by every capture.</p>
+ *
+ * <p>Each instance has its own SDK handle and drives the reader at its
+ * index in {@code EnumerateDevice}, so several readers capture in
+ * parallel.</p>
  */
-public class HamsterDX  implements Fingerprint {
-    private boolean sdkInitialized = false;
-    private boolean readerConnected = false;
-    private boolean captureCompleted = false;
-    private boolean awaitingCapture = false;
+public class HamsterDX extends DeviceActor {
 
-    private ThreadReading threadReading = new ThreadReading();
-    private final List<FingerprintTemplate> fingerprintsCaptured = new ArrayList<>();
+    /**
+     * Pause before each capture call, in milliseconds.
+     */
+    private static final long CAPTURE_DELAY_MS = 500;
+
+    /**
+     * Lowest frame quality accepted for extraction; the SDK scores up to 100.
+     */
+    private static final int MIN_QUALITY = 31;
+
+    /**
+     * Frame buffers kept idle: the one being extracted, a queued one and the newest best.
+     */
+    private static final int POOLED_FRAMES = 4;
 
     NBioBSPJNI bsp = null;
     NBioBSPJNI.INPUT_FIR inputFIR = null;
@@ -33,9 +57,37 @@ public class HamsterDX  implements Fingerprint {
     private NBioBSPJNI.DEVICE_ENUM_INFO deviceEnumInfo;
     private NBioBSPJNI.FIR_HANDLE handleReader;
 
+    private final int index;
     private short deviceId = 0;
 
+    private final FrameBufferPool frames = new FrameBufferPool(POOLED_FRAMES);
+    private final ExtractionPipeline pipeline;
+
+    /**
+     * Capture in progress and its callback state; only used on the device thread.
+     */
+    private CaptureAttempt attempt;
+    private SampleSelector<byte[]> selector;
+    private ExtractionPipeline.Job extraction;
+    private int frameWidth;
+    private int frameHeight;
+    private int[] row = new int[0];
+    private boolean fingerDetected = false;
+    private long fingerDetectedNanos;
+
     public HamsterDX() {
+        this(0);
+    }
+
+    /**
+     * Creates the driver for the {@code index}-th enumerated reader.
+     */
+    public HamsterDX(int index) {
+        super("HamsterDX-" + index);
+
+        this.index = index;
+        this.pipeline = new ExtractionPipeline("HamsterDX-" + index);
+
         bsp = new NBioBSPJNI();
         inputFIR = bsp.new INPUT_FIR();
         winOption = bsp.new WINDOW_OPTION();
@@ -44,67 +96,69 @@ public class HamsterDX  implements Fingerprint {
         winOption.CaptureCallback = new NBioBSPJNI.CAPTURE_CALLBACK() {
             @Override
             public int OnCaptured(NBioBSPJNI.CAPTURED_DATA i_capture) {
-                if (i_capture.ImageQuality > 30) {
-
-                    try {
-                        byte[] bitmapBytes;
-                        try (ByteArrayOutputStream stream = new ByteArrayOutputStream()) {
-                            ImageIO.write((java.awt.image.BufferedImage) i_capture.RawImage, "bmp", stream);
-                            stream.flush();
-                            bitmapBytes = stream.toByteArray();
-                        }
+                if (attempt.cancelled()) return NBioBSPJNI.ERROR.NBioAPIERROR_USER_CANCEL;
 
-                        FingerprintTemplate fp = new FingerprintTemplate(bitmapBytes);
-                        fingerprintsCaptured.add(fp);
+                CaptureListener listener = attempt.listener();
 
-                        return NBioBSPJNI.ERROR.NBioAPIERROR_NONE;
+                if (!fingerDetected && i_capture.ImageQuality > 0) {
+                    fingerDetected = true;
+                    fingerDetectedNanos = System.nanoTime();
+                    metrics.stage(CaptureStage.FINGER_WAIT).record(fingerDetectedNanos - attempt.startNanos());
 
-                    } catch (Exception ex) {
-                        return NBioBSPJNI.ERROR.NBioAPIERROR_FUNCTION_FAIL;
-                    }
+                    listener.onFingerDetected();
                 }
 
-                if (!awaitingCapture) return NBioBSPJNI.ERROR.NBioAPIERROR_USER_CANCEL;
+                listener.onImageQuality(i_capture.ImageQuality);
+
+                // The SDK reuses the frame buffer, so only a new best frame is copied
+                BufferedImage frame = (BufferedImage) i_capture.RawImage;
 
-                return NBioBSPJNI.ERROR.NBioAPIERROR_NONE;
+                boolean selected = selector.offer(i_capture.ImageQuality, () -> grab(frame));
+                if (selector.improved()) extractInBackground(selector.best());
+
+                return selected
+                        ? NBioBSPJNI.ERROR.NBioAPIERROR_USER_CANCEL
+                        : NBioBSPJNI.ERROR.NBioAPIERROR_NONE;
             }
         };
 
     }
 
-    @Override
-    public boolean hasFingerprintCapture() {  return !fingerprintsCaptured.isEmpty(); }
+    /**
+     * Returns the number of Hamster readers attached, using a temporary SDK
+     * instance; only safe while no reader is open.
+     */
+    public static int count() {
+        NBioBSPJNI probe = new NBioBSPJNI();
 
-    @Override
-    public String fingerprintCaptured() {
-        if (fingerprintsCaptured.isEmpty()) return "";
+        try {
+            NBioBSPJNI.DEVICE_ENUM_INFO info = probe.new DEVICE_ENUM_INFO();
+            probe.EnumerateDevice(info);
 
-        return fingerprintsCaptured.get(fingerprintsCaptured.size() - 1).json();
+            return Math.max(info.DeviceCount, 0);
+        } finally {
+            probe.dispose();
+        }
     }
 
     @Override
-    public void initialize() throws Exception {
-        if (sdkInitialized) return;
-
+    protected void open() {
         if (deviceId > 0) {
-            bsp.CloseDevice(deviceEnumInfo.DeviceInfo[0].NameID, deviceEnumInfo.DeviceInfo[0].Instance);
+            bsp.CloseDevice(deviceEnumInfo.DeviceInfo[index].NameID, deviceEnumInfo.DeviceInfo[index].Instance);
         }
 
         deviceEnumInfo = bsp.new DEVICE_ENUM_INFO();
         bsp.EnumerateDevice(deviceEnumInfo);
         bsp.GetVersion();
 
-        if (deviceEnumInfo.DeviceCount <= 0) {
-            sdkInitialized = false;
-            readerConnected = false;
-
+        if (deviceEnumInfo.DeviceCount <= index) {
             throw new FingerprintException(
                     FingerprintErrorCodes.SDK_INIT_FAILED,
                     "Unable to initialize fingerprint reader"
             );
         }
 
-        bsp.OpenDevice(deviceEnumInfo.DeviceInfo[0].NameID, deviceEnumInfo.DeviceInfo[0].Instance);
+        bsp.OpenDevice(deviceEnumInfo.DeviceInfo[index].NameID, deviceEnumInfo.DeviceInfo[index].Instance);
 
         deviceId = bsp.GetOpenedDeviceID();
 
@@ -115,156 +169,171 @@ public class HamsterDX  implements Fingerprint {
             );
         }
 
-        readerConnected = true;
-        sdkInitialized = true;
-        awaitingCapture = false;
+        if (handleReader == null) {
+            handleReader = bsp.new FIR_HANDLE();
+            metrics.allocated("fir_handle", 1);
+        }
     }
 
     @Override
-    public void startCapture() throws Exception {
-        if (awaitingCapture) return;
+    protected void close() {
+        pipeline.shutdown();
 
-        if (!sdkInitialized) {
-            throw new FingerprintException(
-                    FingerprintErrorCodes.READER_NOT_CONNECTED,
-                    "Unable to connect to reader"
+        if (handleReader != null) handleReader.dispose();
+        handleReader = null;
+
+        if (deviceId > 0) {
+            bsp.CloseDevice(
+                    deviceEnumInfo.DeviceInfo[index].NameID,
+                    deviceEnumInfo.DeviceInfo[index].Instance
             );
         }
 
+        deviceId = 0;
 
-        fingerprintsCaptured.clear();
-        awaitingCapture = true;
+        bsp.dispose();
+    }
 
-        if (threadReading.isAlive()) threadReading.interrupt();
+    /**
+     * Counts the attached readers with this reader's SDK instance.
+     */
+    @Override
+    protected int enumerate() {
+        NBioBSPJNI.DEVICE_ENUM_INFO current = bsp.new DEVICE_ENUM_INFO();
+        bsp.EnumerateDevice(current);
 
-        threadReading = new ThreadReading();
-        threadReading.setName("ThreadReading - ControlID");
-        threadReading.start();
+        return Math.max(current.DeviceCount, 0);
     }
 
+    /**
+     * Checks that the opened reader is still enumerated by the SDK.
+     */
     @Override
-    public void stopCapture() throws Exception {
-        if (!awaitingCapture) return;
+    protected boolean probe() {
+        NBioBSPJNI.DEVICE_INFO_EX opened = deviceEnumInfo.DeviceInfo[index];
+
+        NBioBSPJNI.DEVICE_ENUM_INFO current = bsp.new DEVICE_ENUM_INFO();
+        bsp.EnumerateDevice(current);
 
-        if (threadReading.isAlive()) threadReading.interrupt();
+        for (int i = 0; i < current.DeviceCount; i++) {
+            NBioBSPJNI.DEVICE_INFO_EX info = current.DeviceInfo[i];
+            if (info.NameID == opened.NameID && info.Instance == opened.Instance) return true;
+        }
 
-        fingerprintsCaptured.clear();
-        awaitingCapture = false;
+        return false;
     }
 
+    /**
+     * Runs SDK captures until the callback selects a frame, then waits for its template.
+     *
+     * <p>The callback ends the SDK capture as soon as a frame is good enough
+     * or the frame and time budgets run out; otherwise the best frame seen
+     * when the SDK returns is used. A selected frame rejected as blank
+     * starts a new SDK capture.</p>
+     */
     @Override
-    public void shutdown() throws Exception {
-        if (!sdkInitialized || !readerConnected) {
-            throw new FingerprintException(
-                    FingerprintErrorCodes.READER_NOT_CONNECTED,
-                    "Unable to connect to reader"
-            );
-        }
-
-        if (awaitingCapture) {
-            if (threadReading.isAlive()) threadReading.interrupt();
-            fingerprintsCaptured.clear();
-            awaitingCapture = false;
-        }
+    protected FingerprintTemplate capture(CaptureAttempt attempt) throws Exception {
+        this.attempt = attempt;
+        selector = new SampleSelector<>(MIN_QUALITY);
+        fingerDetected = false;
 
-        while(!captureCompleted) {
-            Thread.sleep(1000);
-            captureCompleted = true;
-        }
+        long allocationsBefore = frames.allocations();
 
-        if (handleReader != null) handleReader.dispose();
+        try {
+            while (!attempt.cancelled()) {
+                if (attempt.awaitCancel(CAPTURE_DELAY_MS)) return null;
+
+                bsp.Capture(
+                        NBioBSPJNI.FIR_PURPOSE.VERIFY,
+                        handleReader, -1,
+                        null,
+                        winOption
+                );
 
-        if (deviceId > 0) {
-            bsp.CloseDevice(
-                    deviceEnumInfo.DeviceInfo[0].NameID,
-                    deviceEnumInfo.DeviceInfo[0].Instance
-            );
-        }
+                if (attempt.cancelled()) return null;
 
-        deviceId = 0;
+                if (selector.finish()) {
+                    try {
+                        return awaitSelected(attempt.listener());
+                    } catch (FingerprintException e) {
+                        // A blank or smudged frame is not worth failing the capture; grab another
+                        if (!FingerprintErrorCodes.BLANK_IMAGE.equals(e.getCode())) throw e;
 
-        bsp.dispose();
+                        metrics.error(e.getCode());
 
-        readerConnected = false;
-        sdkInitialized = false;
-    }
+                        selector = new SampleSelector<>(MIN_QUALITY);
+                        extraction = null;
+                        continue;
+                    }
+                }
 
-    @Override
-    public FingerprintMatchResult match(String capturedTemplate, String storedTemplate) {
-        try {
-            FingerprintTemplate fpCaptured = new FingerprintTemplate(capturedTemplate);
-            FingerprintTemplate fpStored = new FingerprintTemplate(storedTemplate);
-            FingerprintMatcher fm = new FingerprintMatcher(fpCaptured);
+                if (bsp.IsErrorOccured()) {
+                    if (bsp.GetErrorCode() == NBioBSPJNI.ERROR.NBioAPIERROR_CAPTURE_TIMEOUT) continue;
 
-            double score = fm.match(fpStored);
-            int margin = 10;
+                    throw new FingerprintException(
+                            FingerprintErrorCodes.CAPTURE_FAILED,
+                            "Capture failed"
+                    );
+                }
+            }
 
-            double threshold = Fingerprint.DEFAULT_THRESHOLD - margin;
-            boolean matched = score >= threshold;
+            return null;
+        } finally {
+            if (extraction != null) extraction.cancel();
+            extraction = null;
 
-            return new FingerprintMatchResult(matched, score);
-        } catch (Exception ex) {
-            throw new FingerprintException(
-                    FingerprintErrorCodes.MATCH_FAILED,
-                    "Fingerprint match failed"
-            );
+            metrics.allocated("frame_buffer", frames.allocations() - allocationsBefore);
         }
     }
 
     /**
-     * Thread responsible for capturing a single fingerprint.
-     *
-     * <p>Waits until the reader is ready, performs capture attempts
-     * and stores the resulting template when successful.</p>
+     * Waits for the template of the selected frame, queued when it became the best one.
      */
-    private class ThreadReading extends Thread {
-
-        /**
-         * Capture execution loop.
-         */
-        @Override
-        public void run() {
-            try {
-                captureCompleted = false;
+    private FingerprintTemplate awaitSelected(CaptureListener listener) throws Exception {
+        metrics.stage(CaptureStage.IMAGE_GRAB).recordSince(fingerDetectedNanos);
 
-                while (awaitingCapture && !Thread.currentThread().isInterrupted()) {
+        listener.onSampleSelected(selector.bestQuality(), selector.reason());
+        listener.onExtractionStarted();
 
-                    handleReader = bsp.new FIR_HANDLE();
+        return extraction.await();
+    }
 
-                    if (fingerprintsCaptured.size() >= 3) break;
+    /**
+     * Queues a new best frame, dropping the previous one if its extraction has not started.
+     */
+    private void extractInBackground(byte[] pixels) {
+        if (extraction != null) extraction.cancel();
 
-                    sleep(500);
+        extraction = pipeline.submit(pixels, frameWidth, frameHeight, FingerprintType.HAMSTER.dpi(), () -> frames.release(pixels));
+    }
 
-                    bsp.Capture(
-                            NBioBSPJNI.FIR_PURPOSE.VERIFY,
-                            handleReader, -1,
-                            null,
-                            winOption
-                            );
+    /**
+     * Copies a frame's grayscale pixels into a pooled buffer.
+     */
+    private byte[] grab(BufferedImage frame) {
+        frameWidth = frame.getWidth();
+        frameHeight = frame.getHeight();
 
-                    if (Thread.currentThread().isInterrupted())   break;
+        byte[] pixels = frames.acquire(frameWidth * frameHeight);
 
-                    if (bsp.IsErrorOccured()) {
-                        if (bsp.GetErrorCode() == NBioBSPJNI.ERROR.NBioAPIERROR_CAPTURE_TIMEOUT) continue;
+        if (frame.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            frame.getRaster().getDataElements(0, 0, frameWidth, frameHeight, pixels);
+            return pixels;
+        }
 
-                        break;
-                    }
+        // Convert row by row straight into the pooled buffer
+        if (row.length < frameWidth) row = new int[frameWidth];
 
-                    handleReader.dispose();
-                    handleReader = null;
-                    break;
-                }
+        for (int y = 0, offset = 0; y < frameHeight; y++, offset += frameWidth) {
+            frame.getRGB(0, y, frameWidth, 1, row, 0, frameWidth);
 
-            } catch (Exception ex) {
-                readerConnected = false;
-                throw new FingerprintException(
-                        FingerprintErrorCodes.CAPTURE_FAILED,
-                        "Capture failed"
-                );
-            } finally {
-                awaitingCapture = false;
-                captureCompleted = true;
+            for (int x = 0; x < frameWidth; x++) {
+                int rgb = row[x];
+                int luma = 77 * ((rgb >> 16) & 0xFF) + 150 * ((rgb >> 8) & 0xFF) + 29 * (rgb & 0xFF);
+                pixels[offset + x] = (byte) (luma >> 8);
             }
         }
+
+        return pixels;
     }
 }
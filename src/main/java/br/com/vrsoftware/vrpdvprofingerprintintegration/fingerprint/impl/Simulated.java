@@ -0,0 +1,235 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.impl;
+
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.capture.CaptureListener;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.device.CaptureAttempt;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.device.DeviceActor;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.device.SampleSelector;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.FingerprintErrorCodes;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.FingerprintException;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.image.RawImageExtractor;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.model.FingerprintType;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.metrics.CaptureStage;
+import com.machinezoo.sourceafis.FingerprintTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Hardware-free fingerprint reader for load and latency testing.
+ *
+ * <p>Replays the samples found in {@code fingerprint.simulated.dir}, in name
+ * order: raw 8-bit grayscale buffers ({@code *.raw}, sized by the
+ * {@code width}, {@code height} and {@code dpi} keys of
+ * {@code samples.properties}), encoded images ({@code *.bmp}, {@code *.png})
+ * and SourceAFIS templates ({@code *.json}). Images go through the same
+ * {@link RawImageExtractor} path as the ControlID reader.</p>
+ *
+ * <p>Each capture waits {@code presenceDelayMs} for the finger, then reports
+ * frames every {@code frameIntervalMs} with a quality drawn from a normal
+ * distribution ({@code qualityMean}, {@code qualityStdDev}) to a
+ * {@link SampleSelector} with a floor of {@code minQuality}, and holds the accepted frame for {@code latencyMs}
+ * before extraction. {@code failureRate} is the probability that a capture
+ * fails with {@code CAPTURE_FAILED}. All settings are system properties
+ * prefixed with {@code fingerprint.simulated.}; {@code devices} sets how
+ * many independent simulated readers are attached.</p>
+ */
+public class Simulated extends DeviceActor {
+
+    private static final String PREFIX = "fingerprint.simulated.";
+
+    /**
+     * Frames reported before a capture gives up on selecting one.
+     */
+    private static final int MAX_FRAMES = 100;
+
+    private final File directory = new File(System.getProperty(PREFIX + "dir", "samples"));
+    private final long presenceDelayMs = Long.getLong(PREFIX + "presenceDelayMs", 500);
+    private final long latencyMs = Long.getLong(PREFIX + "latencyMs", 100);
+    private final long frameIntervalMs = Long.getLong(PREFIX + "frameIntervalMs", 50);
+    private final int qualityMean = Integer.getInteger(PREFIX + "qualityMean", 70);
+    private final int qualityStdDev = Integer.getInteger(PREFIX + "qualityStdDev", 15);
+    private final int minQuality = Integer.getInteger(PREFIX + "minQuality", 30);
+    private final double failureRate = Double.parseDouble(System.getProperty(PREFIX + "failureRate", "0"));
+
+    private final Random random;
+
+    private final RawImageExtractor extractor = new RawImageExtractor();
+
+    private List<File> samples;
+    private int nextSample;
+    private int width;
+    private int height;
+    private double dpi;
+
+    public Simulated() {
+        this(0);
+    }
+
+    /**
+     * Creates the {@code index}-th simulated reader; each one replays the samples independently.
+     */
+    public Simulated(int index) {
+        super("Simulated-" + index);
+
+        random = new Random(Long.getLong(PREFIX + "seed", System.nanoTime()) + index);
+    }
+
+    /**
+     * Returns the number of simulated readers, {@code fingerprint.simulated.devices} (1 by default).
+     */
+    public static int count() {
+        return Integer.getInteger(PREFIX + "devices", 1);
+    }
+
+    @Override
+    protected void open() throws IOException {
+        File[] files = directory.listFiles((dir, name) -> isSample(name));
+
+        if (files == null || files.length == 0) {
+            throw new FingerprintException(
+                    FingerprintErrorCodes.SDK_INIT_FAILED,
+                    "No simulated samples found in " + directory.getAbsolutePath()
+            );
+        }
+
+        Arrays.sort(files);
+
+        Properties properties = new Properties();
+        File metadata = new File(directory, "samples.properties");
+
+        if (metadata.isFile()) {
+            try (InputStream input = new FileInputStream(metadata)) {
+                properties.load(input);
+            }
+        }
+
+        width = Integer.parseInt(properties.getProperty("width", "0"));
+        height = Integer.parseInt(properties.getProperty("height", "0"));
+        dpi = Double.parseDouble(properties.getProperty("dpi", String.valueOf(FingerprintType.SIMULATED.dpi())));
+
+        samples = Arrays.asList(files);
+        nextSample = 0;
+    }
+
+    @Override
+    protected void close() {
+        samples = null;
+    }
+
+    @Override
+    protected int enumerate() {
+        return count();
+    }
+
+    /**
+     * Reports the reader unplugged while the sample directory is missing.
+     */
+    @Override
+    protected boolean probe() {
+        return directory.isDirectory();
+    }
+
+    /**
+     * Waits for the simulated finger, reports frame qualities
+     * and extracts the template of the next sample.
+     */
+    @Override
+    protected FingerprintTemplate capture(CaptureAttempt attempt) throws Exception {
+        long waitStart = System.nanoTime();
+
+        if (attempt.awaitCancel(presenceDelayMs)) return null;
+
+        long grabStart = System.nanoTime();
+        metrics.stage(CaptureStage.FINGER_WAIT).record(grabStart - waitStart);
+
+        CaptureListener listener = attempt.listener();
+        listener.onFingerDetected();
+
+        File sample = nextSample();
+        SampleSelector<File> selector = new SampleSelector<>(minQuality);
+        int frames = 0;
+
+        do {
+            if (frames > 0 && attempt.awaitCancel(frameIntervalMs)) return null;
+
+            int quality = nextQuality();
+            listener.onImageQuality(quality);
+
+            if (selector.offer(quality, () -> sample)) break;
+        } while (++frames < MAX_FRAMES);
+
+        if (attempt.awaitCancel(latencyMs)) return null;
+
+        if (!selector.finish() || injectFailure()) {
+            throw new IOException("Simulated capture failure");
+        }
+
+        metrics.stage(CaptureStage.IMAGE_GRAB).recordSince(grabStart);
+
+        listener.onSampleSelected(selector.bestQuality(), selector.reason());
+        listener.onExtractionStarted();
+
+        return extract(selector.best());
+    }
+
+    private static boolean isSample(String name) {
+        String lower = name.toLowerCase();
+
+        return lower.endsWith(".raw")
+                || lower.endsWith(".json")
+                || lower.endsWith(".bmp")
+                || lower.endsWith(".png");
+    }
+
+    private File nextSample() {
+        File sample = samples.get(nextSample);
+        nextSample = (nextSample + 1) % samples.size();
+        return sample;
+    }
+
+    private int nextQuality() {
+        double quality = qualityMean + random.nextGaussian() * qualityStdDev;
+        return (int) Math.max(0, Math.min(100, Math.round(quality)));
+    }
+
+    private boolean injectFailure() {
+        return random.nextDouble() < failureRate;
+    }
+
+    /**
+     * Produces the template of a sample the same way a real reader would.
+     */
+    private FingerprintTemplate extract(File sample) throws IOException {
+        String name = sample.getName().toLowerCase();
+
+        if (name.endsWith(".json")) {
+            return new FingerprintTemplate(
+                    new String(Files.readAllBytes(sample.toPath()), StandardCharsets.UTF_8).trim()
+            );
+        }
+
+        if (name.endsWith(".raw")) {
+            return extractor.extract(Files.readAllBytes(sample.toPath()), width, height, dpi);
+        }
+
+        BufferedImage image = ImageIO.read(sample);
+        if (image == null) throw new IOException("Unsupported image " + sample);
+
+        BufferedImage gray = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        gray.getGraphics().drawImage(image, 0, 0, null);
+
+        byte[] pixels = (byte[]) gray.getRaster().getDataElements(0, 0, gray.getWidth(), gray.getHeight(), null);
+
+        return extractor.extract(pixels, gray.getWidth(), gray.getHeight(), dpi);
+    }
+}
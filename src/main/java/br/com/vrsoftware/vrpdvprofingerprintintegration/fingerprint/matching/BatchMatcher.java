@@ -0,0 +1,88 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.matching;
+
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.FingerprintErrorCodes;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.gallery.FingerprintIdentifier;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.model.FingerprintBatchMatchItem;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.model.FingerprintMatchResult;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.template.FingerprintTemplateCache;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.metrics.CaptureStage;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.metrics.Metrics;
+import com.machinezoo.sourceafis.FingerprintMatcher;
+import com.machinezoo.sourceafis.FingerprintTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+/**
+ * Matches one probe against a list of candidate templates.
+ *
+ * <p>The {@link FingerprintMatcher} is built once for the probe and the
+ * candidates are parsed and scored in parallel on the {@link MatchingPool}.
+ * A malformed candidate only fails its own item.</p>
+ */
+public final class BatchMatcher {
+
+    private final FingerprintTemplateCache cache = FingerprintTemplateCache.shared();
+    private final Metrics metrics = Metrics.shared();
+
+    /**
+     * Scores every candidate against the probe.
+     *
+     * @param probe      parsed probe template
+     * @param ids        client ids of the candidates, entries may be {@code null}
+     * @param candidates wire templates, SourceAFIS JSON or base64 binary
+     * @return one item per candidate, in input order
+     */
+    public List<FingerprintBatchMatchItem> match(
+            FingerprintTemplate probe,
+            List<String> ids,
+            List<String> candidates
+    ) {
+        FingerprintMatcher matcher = new FingerprintMatcher(probe);
+        List<Callable<FingerprintBatchMatchItem>> tasks = new ArrayList<>(candidates.size());
+
+        for (int i = 0; i < candidates.size(); i++) {
+            String id = ids.get(i);
+            String candidate = candidates.get(i);
+
+            tasks.add(() -> score(matcher, id, candidate));
+        }
+
+        List<FingerprintBatchMatchItem> items = new ArrayList<>(tasks.size());
+
+        for (Future<FingerprintBatchMatchItem> future : MatchingPool.shared().invokeAll(tasks)) {
+            try {
+                items.add(future.get());
+            } catch (Exception e) {
+                items.add(FingerprintBatchMatchItem.failed(null, FingerprintErrorCodes.MATCH_FAILED));
+            }
+        }
+
+        return items;
+    }
+
+    private FingerprintBatchMatchItem score(FingerprintMatcher matcher, String id, String candidate) {
+        FingerprintTemplate template;
+
+        try {
+            template = cache.get(candidate);
+        } catch (Exception e) {
+            return FingerprintBatchMatchItem.failed(id, FingerprintErrorCodes.INVALID_TEMPLATE);
+        }
+
+        try {
+            long start = System.nanoTime();
+            double score = matcher.match(template);
+            metrics.stage(CaptureStage.MATCH).recordSince(start);
+
+            return FingerprintBatchMatchItem.matched(
+                    id,
+                    new FingerprintMatchResult(score >= FingerprintIdentifier.MATCH_THRESHOLD, score)
+            );
+        } catch (Exception e) {
+            return FingerprintBatchMatchItem.failed(id, FingerprintErrorCodes.MATCH_FAILED);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.matching;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Fork-join pool shared by every parallel matching path.
+ *
+ * <p>Sized to the available cores, so identification and batch matching
+ * never oversubscribe the CPU between themselves.</p>
+ */
+public final class MatchingPool {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(
+            Runtime.getRuntime().availableProcessors()
+    );
+
+    private MatchingPool() {
+    }
+
+    /**
+     * Returns the shared matching pool.
+     */
+    public static ForkJoinPool shared() {
+        return POOL;
+    }
+}
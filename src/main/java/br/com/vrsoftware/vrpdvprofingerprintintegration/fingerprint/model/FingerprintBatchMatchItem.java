@@ -0,0 +1,52 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.model;
+
+/**
+ * Outcome of matching the probe against one candidate of a batch.
+ */
+public final class FingerprintBatchMatchItem {
+
+    private final String id;
+    private final FingerprintMatchResult result;
+    private final String errorCode;
+
+    private FingerprintBatchMatchItem(String id, FingerprintMatchResult result, String errorCode) {
+        this.id = id;
+        this.result = result;
+        this.errorCode = errorCode;
+    }
+
+    /**
+     * Creates the item of a candidate that was compared.
+     */
+    public static FingerprintBatchMatchItem matched(String id, FingerprintMatchResult result) {
+        return new FingerprintBatchMatchItem(id, result, null);
+    }
+
+    /**
+     * Creates the item of a candidate that could not be compared.
+     */
+    public static FingerprintBatchMatchItem failed(String id, String errorCode) {
+        return new FingerprintBatchMatchItem(id, null, errorCode);
+    }
+
+    /**
+     * Returns the candidate id sent by the client, or {@code null}.
+     */
+    public String id() {
+        return id;
+    }
+
+    /**
+     * Returns the match result, or {@code null} if the candidate failed.
+     */
+    public FingerprintMatchResult result() {
+        return result;
+    }
+
+    /**
+     * Returns the error code of a failed candidate, or {@code null}.
+     */
+    public String errorCode() {
+        return errorCode;
+    }
+}
@@ -0,0 +1,29 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.model;
+
+/**
+ * Gallery entry scored against a probe during identification.
+ */
+public final class FingerprintCandidate {
+
+    private final String id;
+    private final double score;
+
+    public FingerprintCandidate(String id, double score) {
+        this.id = id;
+        this.score = score;
+    }
+
+    /**
+     * Returns the identifier under which the template was enrolled.
+     */
+    public String id() {
+        return id;
+    }
+
+    /**
+     * Returns the similarity score produced by the matcher.
+     */
+    public double score() {
+        return score;
+    }
+}
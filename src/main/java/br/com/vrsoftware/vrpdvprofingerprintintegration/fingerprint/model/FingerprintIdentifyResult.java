@@ -0,0 +1,47 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.model;
+
+import java.util.List;
+
+/**
+ * Result of a 1:N fingerprint identification.
+ */
+public final class FingerprintIdentifyResult {
+
+    private final List<FingerprintCandidate> candidates;
+    private final int compared;
+    private final boolean complete;
+
+    public FingerprintIdentifyResult(
+            List<FingerprintCandidate> candidates,
+            int compared,
+            boolean complete
+    ) {
+        this.candidates = candidates;
+        this.compared = compared;
+        this.complete = complete;
+    }
+
+    /**
+     * Returns the best candidates, ordered by descending score.
+     */
+    public List<FingerprintCandidate> candidates() {
+        return candidates;
+    }
+
+    /**
+     * Returns how many gallery templates were compared to the probe.
+     */
+    public int compared() {
+        return compared;
+    }
+
+    /**
+     * Indicates whether the whole gallery was searched.
+     *
+     * <p>{@code false} when the search stopped early because the time
+     * budget expired or a candidate reached the accept score.</p>
+     */
+    public boolean complete() {
+        return complete;
+    }
+}
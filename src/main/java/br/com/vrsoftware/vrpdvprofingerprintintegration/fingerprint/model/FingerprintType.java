@@ -2,16 +2,32 @@ package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.model;
 
 /**
  * Supported fingerprint device types.
+ *
+ * <p>Each type carries its sensor resolution, which SourceAFIS needs to
+ * scale ridge distances; it can be overridden with
+ * {@code fingerprint.dpi.<type>}, e.g. {@code fingerprint.dpi.hamster}.</p>
  */
 public enum FingerprintType {
-    UNKNOWN(0),
-    CONTROLID(1),
-    HAMSTER(2);
+    UNKNOWN(0, 500),
+    CONTROLID(1, 500),
+    HAMSTER(2, 500),
+    SIMULATED(3, 500);
 
     private final int id;
+    private final double dpi;
 
-    FingerprintType(int id) {
+    FingerprintType(int id, double dpi) {
         this.id = id;
+        this.dpi = Double.parseDouble(
+                System.getProperty("fingerprint.dpi." + name().toLowerCase(), String.valueOf(dpi))
+        );
+    }
+
+    /**
+     * Returns the sensor resolution in dots per inch.
+     */
+    public double dpi() {
+        return dpi;
     }
 
     /**
@@ -0,0 +1,176 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.template;
+
+import com.machinezoo.sourceafis.FingerprintTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of parsed SourceAFIS templates.
+ *
+ * <p>Entries are keyed by a SHA-256 hash of the template string, so the
+ * (multi-kilobyte) template text itself is not retained. The cache is
+ * bounded by an estimated memory budget, configurable through the
+ * {@code fingerprint.templateCache.maxBytes} system property, because the
+ * service runs on a 32-bit JRE.</p>
+ */
+public final class FingerprintTemplateCache {
+
+    /**
+     * Default memory budget for cached templates (8 MB).
+     */
+    private static final long DEFAULT_MAX_BYTES = 8L * 1024 * 1024;
+
+    private static final FingerprintTemplateCache SHARED = new FingerprintTemplateCache(
+            Long.getLong("fingerprint.templateCache.maxBytes", DEFAULT_MAX_BYTES)
+    );
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    private long usedBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public FingerprintTemplateCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the cache shared by every matching path of the service.
+     */
+    public static FingerprintTemplateCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the parsed template for the given wire template,
+     * either SourceAFIS JSON or base64 binary ({@link TemplateCodec}),
+     * parsing and caching it on a miss.
+     */
+    public FingerprintTemplate get(String template) {
+        String key = hash(template);
+
+        synchronized (this) {
+            Entry entry = entries.get(key);
+
+            if (entry != null) {
+                hits++;
+                return entry.template;
+            }
+
+            misses++;
+        }
+
+        // Parse outside the lock; a concurrent miss on the same key only costs a duplicate parse
+        String json = TemplateCodec.toJson(template);
+        FingerprintTemplate parsed = new FingerprintTemplate(json);
+        put(key, new Entry(parsed, estimateSize(json)));
+
+        return parsed;
+    }
+
+    /**
+     * Removes every cached template.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        usedBytes = 0;
+    }
+
+    /**
+     * Returns the number of lookups served from the cache.
+     */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups that required parsing.
+     */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of templates evicted to respect the memory budget.
+     */
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the number of cached templates.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the estimated memory held by cached templates, in bytes.
+     */
+    public synchronized long usedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Returns the configured memory budget, in bytes.
+     */
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    private synchronized void put(String key, Entry entry) {
+        if (entry.size > maxBytes) return;
+
+        Entry previous = entries.put(key, entry);
+        if (previous != null) usedBytes -= previous.size;
+        usedBytes += entry.size;
+
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+
+        while (usedBytes > maxBytes && it.hasNext()) {
+            Entry eldest = it.next().getValue();
+            it.remove();
+            usedBytes -= eldest.size;
+            evictions++;
+        }
+    }
+
+    /**
+     * Estimates the retained size of a parsed template from its JSON length.
+     */
+    private static long estimateSize(String json) {
+        return 2L * json.length();
+    }
+
+    private static String hash(String template) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(template.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Cached template together with its estimated size.
+     */
+    private static final class Entry {
+
+        final FingerprintTemplate template;
+        final long size;
+
+        Entry(FingerprintTemplate template, long size) {
+            this.template = template;
+            this.size = size;
+        }
+    }
+}
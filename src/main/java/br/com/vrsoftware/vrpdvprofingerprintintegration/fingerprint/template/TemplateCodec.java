@@ -0,0 +1,334 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.template;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+
+/**
+ * Compact binary encoding of SourceAFIS templates.
+ *
+ * <p>Layout (version 1):</p>
+ * <pre>
+ * magic 'V' 'F' | version (1 byte) | width, height, count (varints)
+ * per minutia, sorted by y then x:
+ *     dy (varint) | dx (zigzag varint) | direction (2 bytes, 1/65536 of a turn)
+ * minutia types bitmap (1 = bifurcation)
+ * </pre>
+ *
+ * <p>The SourceAFIS JSON form stays accepted everywhere a template is read,
+ * so templates stored before the binary format existed keep working.</p>
+ */
+public final class TemplateCodec {
+
+    public static final int VERSION = 1;
+
+    private static final byte MAGIC_0 = 'V';
+    private static final byte MAGIC_1 = 'F';
+
+    private static final double TWO_PI = 2 * Math.PI;
+    private static final int DIRECTION_STEPS = 65536;
+
+    private static final String ENDING = "ending";
+    private static final String BIFURCATION = "bifurcation";
+
+    private TemplateCodec() {
+    }
+
+    /**
+     * Indicates whether a wire template is in the SourceAFIS JSON form.
+     */
+    public static boolean isJson(String template) {
+        for (int i = 0; i < template.length(); i++) {
+            char c = template.charAt(i);
+            if (!Character.isWhitespace(c)) return c == '{';
+        }
+
+        return false;
+    }
+
+    /**
+     * Converts a wire template, either SourceAFIS JSON or base64 binary,
+     * into SourceAFIS JSON.
+     */
+    public static String toJson(String template) {
+        if (isJson(template)) return template;
+
+        return decode(Base64.getDecoder().decode(template.trim()));
+    }
+
+    /**
+     * Encodes a SourceAFIS JSON template as base64 binary.
+     */
+    public static String toBase64(String json) {
+        return Base64.getEncoder().encodeToString(encode(json));
+    }
+
+    /**
+     * Encodes a SourceAFIS JSON template into the binary format.
+     */
+    public static byte[] encode(String json) {
+        return encode(parseJson(json));
+    }
+
+    /**
+     * Encodes minutiae into the binary format.
+     */
+    public static byte[] encode(Minutiae minutiae) {
+        int count = minutiae.count();
+
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) order[i] = i;
+
+        Arrays.sort(order, Comparator.<Integer>comparingInt(i -> minutiae.y[i]).thenComparingInt(i -> minutiae.x[i]));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + count * 5);
+        out.write(MAGIC_0);
+        out.write(MAGIC_1);
+        out.write(VERSION);
+        writeVarint(out, minutiae.width);
+        writeVarint(out, minutiae.height);
+        writeVarint(out, count);
+
+        int previousX = 0;
+        int previousY = 0;
+
+        for (int i : order) {
+            int direction = quantize(minutiae.direction[i]);
+
+            writeVarint(out, minutiae.y[i] - previousY);
+            writeVarint(out, zigzag(minutiae.x[i] - previousX));
+            out.write(direction >>> 8);
+            out.write(direction);
+
+            previousX = minutiae.x[i];
+            previousY = minutiae.y[i];
+        }
+
+        byte[] types = new byte[(count + 7) / 8];
+
+        for (int i = 0; i < count; i++) {
+            if (minutiae.bifurcation[order[i]]) types[i >>> 3] |= (byte) (1 << (i & 7));
+        }
+
+        out.write(types, 0, types.length);
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes the binary format back into SourceAFIS JSON.
+     */
+    public static String decode(byte[] data) {
+        Minutiae minutiae = readMinutiae(data);
+
+        JsonObject size = new JsonObject();
+        size.addProperty("x", minutiae.width);
+        size.addProperty("y", minutiae.height);
+
+        JsonArray list = new JsonArray();
+
+        for (int i = 0; i < minutiae.count(); i++) {
+            JsonObject minutia = new JsonObject();
+            minutia.addProperty("x", minutiae.x[i]);
+            minutia.addProperty("y", minutiae.y[i]);
+            minutia.addProperty("direction", minutiae.direction[i]);
+            minutia.addProperty("type", minutiae.bifurcation[i] ? BIFURCATION : ENDING);
+            list.add(minutia);
+        }
+
+        JsonObject root = new JsonObject();
+        root.add("size", size);
+        root.add("minutiae", list);
+
+        return root.toString();
+    }
+
+    /**
+     * Reads the minutiae of a wire template, either SourceAFIS JSON or base64 binary,
+     * without building a SourceAFIS template.
+     */
+    public static Minutiae readMinutiae(String template) {
+        if (isJson(template)) return parseJson(template);
+
+        return readMinutiae(Base64.getDecoder().decode(template.trim()));
+    }
+
+    /**
+     * Reads the minutiae of a binary template without building a SourceAFIS template.
+     */
+    public static Minutiae readMinutiae(byte[] data) {
+        Reader in = new Reader(data);
+
+        if (in.readByte() != MAGIC_0 || in.readByte() != MAGIC_1) {
+            throw new IllegalArgumentException("Not a binary fingerprint template");
+        }
+
+        int version = in.readByte();
+
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported template version: " + version);
+        }
+
+        int width = in.readVarint();
+        int height = in.readVarint();
+        int count = in.readVarint();
+
+        // Each minutia takes at least four bytes, reject counts the payload cannot hold
+        if (count < 0 || count > (data.length - in.position) / 4) {
+            throw new IllegalArgumentException("Malformed fingerprint template");
+        }
+
+        Minutiae minutiae = new Minutiae(width, height, count);
+
+        int x = 0;
+        int y = 0;
+
+        for (int i = 0; i < count; i++) {
+            y += in.readVarint();
+            x += unzigzag(in.readVarint());
+
+            minutiae.x[i] = x;
+            minutiae.y[i] = y;
+            minutiae.direction[i] = ((in.readByte() << 8) | in.readByte()) * TWO_PI / DIRECTION_STEPS;
+        }
+
+        int typesOffset = in.position;
+        in.skip((count + 7) / 8);
+
+        for (int i = 0; i < count; i++) {
+            minutiae.bifurcation[i] = (data[typesOffset + (i >>> 3)] & (1 << (i & 7))) != 0;
+        }
+
+        return minutiae;
+    }
+
+    private static Minutiae parseJson(String json) {
+        JsonObject root = JsonParser.parseString(json).getAsJsonObject();
+        JsonObject size = root.getAsJsonObject("size");
+        JsonArray list = root.getAsJsonArray("minutiae");
+
+        if (size == null || list == null) {
+            throw new IllegalArgumentException("Unsupported template format");
+        }
+
+        Minutiae minutiae = new Minutiae(
+                size.get("x").getAsInt(),
+                size.get("y").getAsInt(),
+                list.size()
+        );
+
+        for (int i = 0; i < list.size(); i++) {
+            JsonObject minutia = list.get(i).getAsJsonObject();
+
+            minutiae.x[i] = minutia.get("x").getAsInt();
+            minutiae.y[i] = minutia.get("y").getAsInt();
+            minutiae.direction[i] = minutia.get("direction").getAsDouble();
+            minutiae.bifurcation[i] = BIFURCATION.equals(minutia.get("type").getAsString());
+        }
+
+        return minutiae;
+    }
+
+    private static int quantize(double direction) {
+        double turn = direction % TWO_PI;
+        if (turn < 0) turn += TWO_PI;
+
+        return (int) Math.round(turn / TWO_PI * DIRECTION_STEPS) & (DIRECTION_STEPS - 1);
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        out.write(value);
+    }
+
+    /**
+     * Minutiae of a template, as plain arrays.
+     */
+    public static final class Minutiae {
+
+        public final int width;
+        public final int height;
+        public final int[] x;
+        public final int[] y;
+
+        /**
+         * Minutia directions in radians.
+         */
+        public final double[] direction;
+        public final boolean[] bifurcation;
+
+        Minutiae(int width, int height, int count) {
+            this.width = width;
+            this.height = height;
+            this.x = new int[count];
+            this.y = new int[count];
+            this.direction = new double[count];
+            this.bifurcation = new boolean[count];
+        }
+
+        /**
+         * Returns the number of minutiae.
+         */
+        public int count() {
+            return x.length;
+        }
+    }
+
+    /**
+     * Bounds-checked cursor over an encoded template.
+     */
+    private static final class Reader {
+
+        private final byte[] data;
+        private int position;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        int readByte() {
+            if (position >= data.length) {
+                throw new IllegalArgumentException("Truncated fingerprint template");
+            }
+
+            return data[position++] & 0xFF;
+        }
+
+        int readVarint() {
+            int value = 0;
+
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+
+            throw new IllegalArgumentException("Malformed fingerprint template");
+        }
+
+        void skip(int length) {
+            if (position + length > data.length) {
+                throw new IllegalArgumentException("Truncated fingerprint template");
+            }
+
+            position += length;
+        }
+    }
+}
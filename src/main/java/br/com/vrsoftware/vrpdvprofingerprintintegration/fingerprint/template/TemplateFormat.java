@@ -0,0 +1,51 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.template;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.util.Map;
+
+/**
+ * Wire formats in which captured templates can be returned.
+ */
+public enum TemplateFormat {
+
+    /**
+     * SourceAFIS JSON, as returned by {@code FingerprintTemplate.json()}.
+     */
+    JSON,
+
+    /**
+     * {@link TemplateCodec} binary, base64 encoded inside the JSON response.
+     */
+    BINARY,
+
+    /**
+     * {@link TemplateCodec} binary as a raw {@code application/octet-stream} body.
+     */
+    OCTET_STREAM;
+
+    public static final String OCTET_STREAM_TYPE = "application/octet-stream";
+
+    /**
+     * Negotiates the response format from the {@code Accept} header
+     * and the optional {@code format} query parameter.
+     *
+     * <p>Defaults to {@link #JSON} so existing clients are unaffected.</p>
+     */
+    public static TemplateFormat negotiate(HttpExchange exchange, Map<String, String> params) {
+        String accept = exchange.getRequestHeaders().getFirst("Accept");
+
+        if (accept != null && accept.contains(OCTET_STREAM_TYPE)) return OCTET_STREAM;
+
+        return "binary".equalsIgnoreCase(params.get("format")) ? BINARY : JSON;
+    }
+
+    /**
+     * Indicates whether a request body is sent as raw binary templates.
+     */
+    public static boolean isOctetStream(HttpExchange exchange) {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+
+        return contentType != null && contentType.startsWith(OCTET_STREAM_TYPE);
+    }
+}
@@ -0,0 +1,50 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.metrics;
+
+/**
+ * Internal stages of a capture and comparison, timed separately.
+ */
+public enum CaptureStage {
+
+    /**
+     * From the start of the capture until a finger is on the sensor.
+     */
+    FINGER_WAIT("finger_wait"),
+
+    /**
+     * Reading the image from the sensor.
+     */
+    IMAGE_GRAB("image_grab"),
+
+    /**
+     * Blank-frame check and cropping to the fingerprint region.
+     */
+    PREPROCESS("preprocess"),
+
+    /**
+     * Encoding the sensor image for template extraction.
+     */
+    ENCODE("encode"),
+
+    /**
+     * SourceAFIS template extraction.
+     */
+    EXTRACTION("extraction"),
+
+    /**
+     * Matcher construction and 1:1 comparison.
+     */
+    MATCH("match");
+
+    private final String label;
+
+    CaptureStage(String label) {
+        this.label = label;
+    }
+
+    /**
+     * Returns the value of the {@code stage} label.
+     */
+    public String label() {
+        return label;
+    }
+}
@@ -0,0 +1,159 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-bucket latency histogram.
+ *
+ * <p>Recording only increments atomic counters, so it allocates nothing and
+ * never blocks. Quantiles are estimated by interpolating inside the bucket
+ * that holds them; the maximum is exact.</p>
+ */
+public final class LatencyHistogram {
+
+    /**
+     * Upper bounds of the finite buckets, in microseconds, from 100 us to 60 s.
+     */
+    private static final long[] BOUNDS_MICROS = {
+            100, 250, 500,
+            1_000, 2_500, 5_000,
+            10_000, 25_000, 50_000,
+            100_000, 250_000, 500_000,
+            1_000_000, 2_500_000, 5_000_000,
+            10_000_000, 30_000_000, 60_000_000
+    };
+
+    private static final long[] BOUNDS_NANOS = new long[BOUNDS_MICROS.length];
+
+    static {
+        for (int i = 0; i < BOUNDS_MICROS.length; i++) {
+            BOUNDS_NANOS[i] = TimeUnit.MICROSECONDS.toNanos(BOUNDS_MICROS[i]);
+        }
+    }
+
+    /**
+     * One counter per finite bucket plus the overflow bucket.
+     */
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS_NANOS.length + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Records one observation.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+
+        buckets.incrementAndGet(bucketOf(nanos));
+        count.incrementAndGet();
+        sumNanos.addAndGet(nanos);
+
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * Records the time elapsed since {@code startNanos}, taken from {@link System#nanoTime()}.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Returns the number of observations.
+     */
+    public long count() {
+        return count.get();
+    }
+
+    /**
+     * Returns the sum of all observations, in nanoseconds.
+     */
+    public long sumNanos() {
+        return sumNanos.get();
+    }
+
+    /**
+     * Returns the largest observation, in nanoseconds.
+     */
+    public long maxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Estimates the given quantile, in nanoseconds.
+     *
+     * @param quantile value between 0 and 1
+     */
+    public long quantileNanos(double quantile) {
+        long[] counts = snapshot();
+        long total = 0;
+
+        for (long value : counts) total += value;
+        if (total == 0) return 0;
+
+        long rank = (long) Math.ceil(quantile * total);
+        if (rank < 1) rank = 1;
+
+        long max = maxNanos.get();
+        long seen = 0;
+
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0 || seen + counts[i] < rank) {
+                seen += counts[i];
+                continue;
+            }
+
+            long lower = i == 0 ? 0 : BOUNDS_NANOS[i - 1];
+            long upper = i < BOUNDS_NANOS.length ? Math.min(BOUNDS_NANOS[i], max) : max;
+            double position = (double) (rank - seen) / counts[i];
+
+            return lower + (long) ((upper - lower) * position);
+        }
+
+        return max;
+    }
+
+    /**
+     * Returns a copy of the per-bucket counts, overflow bucket last.
+     */
+    long[] snapshot() {
+        long[] counts = new long[buckets.length()];
+
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+        }
+
+        return counts;
+    }
+
+    /**
+     * Returns the upper bounds of the finite buckets, in nanoseconds.
+     */
+    static long[] boundsNanos() {
+        return BOUNDS_NANOS.clone();
+    }
+
+    private static int bucketOf(long nanos) {
+        int low = 0;
+        int high = BOUNDS_NANOS.length;
+
+        // First bucket whose upper bound is >= nanos; the overflow bucket otherwise
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+
+            if (BOUNDS_NANOS[mid] < nanos) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+}
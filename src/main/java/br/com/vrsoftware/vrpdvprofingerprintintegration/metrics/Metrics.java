@@ -0,0 +1,150 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide service metrics, exposed by {@link MetricsController}.
+ *
+ * <p>Histograms and counters are created on first use and then only updated
+ * through atomic operations, so recording on the request and capture paths
+ * does not allocate. Endpoint and error labels come from a fixed set of
+ * names, which keeps the number of series bounded.</p>
+ */
+public final class Metrics {
+
+    private static final Metrics SHARED = new Metrics();
+
+    private final ConcurrentMap<String, LatencyHistogram> endpoints = new ConcurrentHashMap<>();
+    private final LatencyHistogram[] stages = new LatencyHistogram[CaptureStage.values().length];
+    private final ConcurrentMap<String, AtomicLong> errors = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicLong> allocations = new ConcurrentHashMap<>();
+    private final AtomicLong reconnects = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private Metrics() {
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Returns the metrics shared by the whole service.
+     */
+    public static Metrics shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns new metrics that are not exposed, for work that must stay out
+     * of the service figures.
+     */
+    public static Metrics detached() {
+        return new Metrics();
+    }
+
+    /**
+     * Returns the latency histogram of an HTTP endpoint.
+     */
+    public LatencyHistogram endpoint(String name) {
+        LatencyHistogram histogram = endpoints.get(name);
+        if (histogram != null) return histogram;
+
+        return endpoints.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    /**
+     * Returns the latency histogram of an internal capture stage.
+     */
+    public LatencyHistogram stage(CaptureStage stage) {
+        return stages[stage.ordinal()];
+    }
+
+    /**
+     * Counts an error reported with the given {@code FingerprintErrorCodes} code.
+     */
+    public void error(String code) {
+        AtomicLong counter = errors.get(code);
+        if (counter == null) counter = errors.computeIfAbsent(code, key -> new AtomicLong());
+
+        counter.incrementAndGet();
+    }
+
+    /**
+     * Counts buffers or native handles of the given kind allocated by one capture.
+     */
+    public void allocated(String kind, long count) {
+        if (count <= 0) return;
+
+        AtomicLong counter = allocations.get(kind);
+        if (counter == null) counter = allocations.computeIfAbsent(kind, key -> new AtomicLong());
+
+        counter.addAndGet(count);
+    }
+
+    /**
+     * Counts a device that connected again after having been connected before.
+     */
+    public void reconnected() {
+        reconnects.incrementAndGet();
+    }
+
+    /**
+     * Marks the start of a request; pair with {@link #requestFinished()}.
+     */
+    public void requestStarted() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * Marks the end of a request started with {@link #requestStarted()}.
+     */
+    public void requestFinished() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Returns the endpoint histograms, sorted by endpoint name.
+     */
+    Map<String, LatencyHistogram> endpoints() {
+        return new TreeMap<>(endpoints);
+    }
+
+    /**
+     * Returns the error counts, sorted by code.
+     */
+    Map<String, Long> errors() {
+        Map<String, Long> counts = new TreeMap<>();
+
+        for (Map.Entry<String, AtomicLong> entry : errors.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().get());
+        }
+
+        return counts;
+    }
+
+    /**
+     * Returns the capture allocation counts, sorted by kind.
+     */
+    Map<String, Long> allocations() {
+        Map<String, Long> counts = new TreeMap<>();
+
+        for (Map.Entry<String, AtomicLong> entry : allocations.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().get());
+        }
+
+        return counts;
+    }
+
+    long reconnects() {
+        return reconnects.get();
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,241 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.metrics;
+
+import br.com.vrsoftware.vrpdvprofingerprintintegration.executor.Bulkhead;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.gallery.FingerprintGallery;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.template.FingerprintTemplateCache;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.warmup.Warmup;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * HTTP controller exposing {@link Metrics} in the Prometheus text format.
+ *
+ * <p>Latencies are published as histograms, together with p50/p99 estimates
+ * and the exact maximum so they can be read without a Prometheus server.</p>
+ */
+public class MetricsController implements HttpHandler {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double[] QUANTILES = {0.5, 0.99};
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private final Metrics metrics = Metrics.shared();
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            byte[] body = render().getBytes(StandardCharsets.UTF_8);
+
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private String render() {
+        StringBuilder out = new StringBuilder(8192);
+
+        histograms(
+                out,
+                "fingerprint_http_request_duration_seconds",
+                "Time spent handling /fingerprint requests.",
+                "endpoint",
+                metrics.endpoints()
+        );
+
+        Map<String, LatencyHistogram> stages = new LinkedHashMap<>();
+        for (CaptureStage stage : CaptureStage.values()) {
+            stages.put(stage.label(), metrics.stage(stage));
+        }
+
+        histograms(
+                out,
+                "fingerprint_stage_duration_seconds",
+                "Time spent in each internal capture and match stage.",
+                "stage",
+                stages
+        );
+
+        header(out, "fingerprint_errors_total", "Errors reported, by error code.", "counter");
+        for (Map.Entry<String, Long> error : metrics.errors().entrySet()) {
+            sample(out, "fingerprint_errors_total", "code", error.getKey(), null, null, error.getValue());
+        }
+
+        header(out, "fingerprint_capture_allocations_total",
+                "Frame buffers and native handles allocated by captures, by kind.", "counter");
+        for (Map.Entry<String, Long> allocation : metrics.allocations().entrySet()) {
+            sample(out, "fingerprint_capture_allocations_total", "kind", allocation.getKey(), null, null,
+                    allocation.getValue());
+        }
+
+        gauge(out, "fingerprint_device_reconnects_total",
+                "Device connections made after an earlier connection.", "counter", metrics.reconnects());
+        gauge(out, "fingerprint_http_requests_in_flight",
+                "Requests currently being handled.", "gauge", metrics.inFlight());
+
+        executors(out);
+
+        FingerprintTemplateCache cache = FingerprintTemplateCache.shared();
+
+        gauge(out, "fingerprint_template_cache_hits_total", "Template cache hits.", "counter", cache.hits());
+        gauge(out, "fingerprint_template_cache_misses_total", "Template cache misses.", "counter", cache.misses());
+        gauge(out, "fingerprint_template_cache_evictions_total", "Template cache evictions.", "counter", cache.evictions());
+        gauge(out, "fingerprint_template_cache_entries", "Templates held by the cache.", "gauge", cache.size());
+        gauge(out, "fingerprint_template_cache_bytes", "Estimated memory used by the cache.", "gauge", cache.usedBytes());
+
+        gauge(out, "fingerprint_gallery_templates", "Templates enrolled in the gallery.", "gauge",
+                FingerprintGallery.shared().size());
+
+        Warmup warmup = Warmup.shared();
+        gauge(out, "fingerprint_ready", "1 once the startup warm-up has finished.", "gauge", warmup.ready() ? 1 : 0);
+        gauge(out, "fingerprint_warmup_duration_seconds", "Time taken by the startup warm-up.", "gauge",
+                warmup.elapsedMillis() / 1000.0);
+
+        return out.toString();
+    }
+
+    private static void executors(StringBuilder out) {
+        header(out, "fingerprint_executor_threads", "Worker threads of each bulkhead executor.", "gauge");
+        for (Bulkhead bulkhead : Bulkhead.all()) {
+            sample(out, "fingerprint_executor_threads", "executor", bulkhead.name(), null, null, bulkhead.threads());
+        }
+
+        header(out, "fingerprint_executor_active_threads", "Threads currently running a task.", "gauge");
+        for (Bulkhead bulkhead : Bulkhead.all()) {
+            sample(out, "fingerprint_executor_active_threads", "executor", bulkhead.name(), null, null, bulkhead.active());
+        }
+
+        header(out, "fingerprint_executor_queue_depth", "Requests waiting for a thread.", "gauge");
+        for (Bulkhead bulkhead : Bulkhead.all()) {
+            sample(out, "fingerprint_executor_queue_depth", "executor", bulkhead.name(), null, null, bulkhead.queueDepth());
+        }
+
+        header(out, "fingerprint_executor_queue_capacity", "Maximum requests waiting for a thread.", "gauge");
+        for (Bulkhead bulkhead : Bulkhead.all()) {
+            sample(out, "fingerprint_executor_queue_capacity", "executor", bulkhead.name(), null, null, bulkhead.queueCapacity());
+        }
+
+        header(out, "fingerprint_executor_rejections_total", "Requests rejected with 503 because the executor was full.", "counter");
+        for (Bulkhead bulkhead : Bulkhead.all()) {
+            sample(out, "fingerprint_executor_rejections_total", "executor", bulkhead.name(), null, null, bulkhead.rejected());
+        }
+    }
+
+    private static void histograms(
+            StringBuilder out,
+            String name,
+            String help,
+            String label,
+            Map<String, LatencyHistogram> histograms
+    ) {
+        long[] bounds = LatencyHistogram.boundsNanos();
+
+        header(out, name, help, "histogram");
+
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            long[] counts = entry.getValue().snapshot();
+            long cumulative = 0;
+
+            for (int i = 0; i < counts.length; i++) {
+                cumulative += counts[i];
+
+                String le = i < bounds.length ? format(bounds[i] / NANOS_PER_SECOND) : "+Inf";
+                sample(out, name + "_bucket", label, entry.getKey(), "le", le, cumulative);
+            }
+
+            sample(out, name + "_sum", label, entry.getKey(), null, null, entry.getValue().sumNanos() / NANOS_PER_SECOND);
+            sample(out, name + "_count", label, entry.getKey(), null, null, cumulative);
+        }
+
+        String quantiles = name.replace("_seconds", "_quantile_seconds");
+        header(out, quantiles, "Estimated quantiles of " + name + ".", "gauge");
+
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            for (double quantile : QUANTILES) {
+                sample(out, quantiles, label, entry.getKey(), "quantile", format(quantile),
+                        entry.getValue().quantileNanos(quantile) / NANOS_PER_SECOND);
+            }
+        }
+
+        String max = name.replace("_seconds", "_max_seconds");
+        header(out, max, "Largest observation of " + name + ".", "gauge");
+
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            sample(out, max, label, entry.getKey(), null, null, entry.getValue().maxNanos() / NANOS_PER_SECOND);
+        }
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, String type, double value) {
+        header(out, name, help, type);
+        sample(out, name, null, null, null, null, value);
+    }
+
+    private static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(
+            StringBuilder out,
+            String name,
+            String label,
+            String value,
+            String extraLabel,
+            String extraValue,
+            double sample
+    ) {
+        out.append(name);
+
+        if (label != null || extraLabel != null) {
+            out.append('{');
+
+            if (label != null) appendLabel(out, label, value);
+
+            if (extraLabel != null) {
+                if (label != null) out.append(',');
+                appendLabel(out, extraLabel, extraValue);
+            }
+
+            out.append('}');
+        }
+
+        out.append(' ').append(format(sample)).append('\n');
+    }
+
+    private static void appendLabel(StringBuilder out, String label, String value) {
+        out.append(label).append("=\"");
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if (c == '\\' || c == '"') {
+                out.append('\\').append(c);
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else {
+                out.append(c);
+            }
+        }
+
+        out.append('"');
+    }
+
+    private static String format(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+
+        // Plain notation keeps bucket bounds readable, e.g. 0.0001 instead of 1.0E-4
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+}
@@ -4,8 +4,8 @@ import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.F
 import com.sun.net.httpserver.HttpExchange;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 /**
  * Utility methods for standardized HTTP JSON responses.
@@ -21,13 +21,35 @@ public final class HttpResponseUtil {
             Map<String, Object> data
     ) throws IOException {
 
-        String json = "{"
-                + "\"error\":false,"
-                + "\"message\":" + toJsonString(message) + ","
-                + "\"data\":" + toJsonObject(data)
-                + "}";
+        try (JsonResponseWriter json = JsonResponseWriter.open(exchange, statusCode)) {
+            json.beginObject()
+                    .name("error").value(false)
+                    .name("message").value(message)
+                    .name("data");
 
-        sendJson(exchange, statusCode, json);
+            if (data == null) {
+                json.beginObject().endObject();
+            } else {
+                json.value((Object) data);
+            }
+
+            json.endObject();
+            json.finish();
+        }
+    }
+
+    /**
+     * Sends a raw binary response.
+     */
+    public static void sendBinary(
+            HttpExchange exchange,
+            int statusCode,
+            byte[] body
+    ) throws IOException {
+
+        exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+        exchange.sendResponseHeaders(statusCode, body.length);
+        exchange.getResponseBody().write(body);
     }
 
     /**
@@ -42,96 +64,73 @@ public final class HttpResponseUtil {
                 ? "Internal server error"
                 : message;
 
-        sendJson(exchange, 500,
-                "{\"error\":true,\"message\":\"" + escapeJson(msg) + "\"}"
-        );
-    }
+        try (JsonResponseWriter json = JsonResponseWriter.open(exchange, 500)) {
+            json.beginObject()
+                    .name("error").value(true)
+                    .name("message").value(msg)
+                    .endObject();
 
-    private static String escapeJson(String value) {
-        return value
-                .replace("\\", "\\\\")
-                .replace("\"", "\\\"");
+            json.finish();
+        }
     }
 
     /**
-     * Sends a fingerprint domain error (HTTP 400).
+     * Sends a fingerprint domain error, with the status given by
+     * {@link FingerprintException#getHttpStatus()} (usually HTTP 400).
      */
     public static void sendFingerprintError(
             HttpExchange exchange,
             FingerprintException e
     ) throws IOException {
 
-        String json = "{"
-                + "\"error\":true,"
-                + "\"code\":\"" + e.getCode() + "\","
-                + "\"message\":\"" + e.getMessage() + "\""
-                + "}";
+        try (JsonResponseWriter json = JsonResponseWriter.open(exchange, e.getHttpStatus())) {
+            json.beginObject()
+                    .name("error").value(true)
+                    .name("code").value(e.getCode())
+                    .name("message").value(e.getMessage())
+                    .endObject();
 
-        sendJson(exchange, 400, json);
+            json.finish();
+        }
     }
 
     /**
-     * Extracts the endpoint name from the request path.
+     * Splits the request path below the context path into its segments.
+     *
+     * <p>For the context {@code /fingerprint}, the path
+     * {@code /fingerprint/capture/abc} yields {@code ["capture", "abc"]}.</p>
      */
-    public static String extractEndpoint(String path) {
-        int idx = path.lastIndexOf('/');
-        return idx >= 0 ? path.substring(idx + 1) : "";
-    }
+    public static String[] extractRoute(String contextPath, String path) {
+        String relative = path.startsWith(contextPath)
+                ? path.substring(contextPath.length())
+                : path;
 
-    /**
-     * Writes a JSON response with proper headers.
-     */
-    private static void sendJson(
-            HttpExchange exchange,
-            int statusCode,
-            String json
-    ) throws IOException {
+        List<String> segments = new ArrayList<>();
 
-        byte[] resp = json.getBytes(StandardCharsets.UTF_8);
-        exchange.getResponseHeaders().set("Content-Type", "application/json");
-        exchange.sendResponseHeaders(statusCode, resp.length);
-        exchange.getResponseBody().write(resp);
-    }
+        for (String segment : relative.split("/")) {
+            if (!segment.isEmpty()) segments.add(segment);
+        }
 
-    /**
-     * Converts a string to a JSON-safe value.
-     */
-    private static String toJsonString(String value) {
-        if (value == null) return "null";
-        return "\"" + value.replace("\"", "\\\"") + "\"";
+        return segments.toArray(new String[0]);
     }
 
     /**
-     * Converts a map into a JSON object.
+     * Serializes a map into a JSON object string.
      */
-    private static String toJsonObject(Map<String, Object> map) {
-        if (map == null || map.isEmpty()) return "{}";
-
-        StringBuilder json = new StringBuilder("{");
-        Iterator<Map.Entry<String, Object>> it = map.entrySet().iterator();
-
-        while (it.hasNext()) {
-            Map.Entry<String, Object> entry = it.next();
-            json.append("\"")
-                    .append(entry.getKey())
-                    .append("\":")
-                    .append(toJsonValue(entry.getValue()));
-
-            if (it.hasNext()) json.append(",");
+    public static String toJson(Map<String, ?> map) {
+        JsonWriter json = new JsonWriter(256);
+
+        try {
+            if (map == null) {
+                json.beginObject().endObject();
+            } else {
+                json.value((Object) map);
+            }
+        } catch (IOException e) {
+            // The growable buffer never fails to write
+            throw new IllegalStateException(e);
         }
 
-        json.append("}");
         return json.toString();
     }
-
-    /**
-     * Converts supported Java types into JSON values.
-     */
-    private static String toJsonValue(Object value) {
-        if (value == null) return "null";
-        if (value instanceof Number || value instanceof Boolean) {
-            return value.toString();
-        }
-        return toJsonString(value.toString());
-    }
 }
@@ -0,0 +1,102 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.utils;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+
+/**
+ * {@link JsonWriter} that streams a JSON response body into an exchange.
+ *
+ * <p>The body is encoded into a per-thread buffer that is reused across
+ * requests. A body that fits in the buffer is sent with a
+ * {@code Content-Length}; a larger one switches to chunked transfer the
+ * first time the buffer fills up and is streamed from then on, so large
+ * payloads are never copied into an intermediate {@code String} or array.</p>
+ *
+ * <p>Nothing is sent until the buffer overflows or {@link #finish()} is
+ * called, so an error raised while serializing can still be answered with
+ * a proper error response.</p>
+ */
+public final class JsonResponseWriter extends JsonWriter implements AutoCloseable {
+
+    /**
+     * Size of the per-thread buffer, and so of the largest body sent with a
+     * {@code Content-Length}; configurable through
+     * {@code fingerprint.http.responseBufferBytes}.
+     */
+    private static final int BUFFER_SIZE = Integer.getInteger("fingerprint.http.responseBufferBytes", 16 * 1024);
+
+    /**
+     * Idle buffer of each thread; empty while a writer on that thread holds it.
+     */
+    private static final ThreadLocal<byte[]> BUFFERS = new ThreadLocal<>();
+
+    private final HttpExchange exchange;
+    private final int statusCode;
+
+    private boolean committed;
+    private boolean released;
+
+    private JsonResponseWriter(HttpExchange exchange, int statusCode, byte[] buffer) {
+        super(buffer);
+        this.exchange = exchange;
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * Starts a JSON response with the given status code.
+     */
+    public static JsonResponseWriter open(HttpExchange exchange, int statusCode) {
+        byte[] buffer = BUFFERS.get();
+
+        if (buffer == null) {
+            buffer = new byte[BUFFER_SIZE];
+        } else {
+            BUFFERS.set(null);
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+
+        return new JsonResponseWriter(exchange, statusCode, buffer);
+    }
+
+    /**
+     * Sends whatever is still buffered, completing the response body.
+     */
+    public void finish() throws IOException {
+        if (!committed) {
+            committed = true;
+            exchange.sendResponseHeaders(statusCode, count == 0 ? -1 : count);
+        }
+
+        if (count > 0) {
+            exchange.getResponseBody().write(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    /**
+     * Returns the buffer to the thread for the next response.
+     */
+    @Override
+    public void close() {
+        if (released) return;
+
+        released = true;
+        count = 0;
+        BUFFERS.set(buffer);
+    }
+
+    @Override
+    protected void flushBuffer() throws IOException {
+        if (!committed) {
+            committed = true;
+
+            // Length 0 selects chunked transfer encoding
+            exchange.sendResponseHeaders(statusCode, 0);
+        }
+
+        exchange.getResponseBody().write(buffer, 0, count);
+        count = 0;
+    }
+}
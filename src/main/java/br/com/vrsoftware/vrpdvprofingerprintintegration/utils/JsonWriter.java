@@ -0,0 +1,292 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Minimal JSON writer that encodes UTF-8 straight into a byte buffer.
+ *
+ * <p>Strings are fully escaped: quotes, backslashes, every control
+ * character and the U+2028/U+2029 separators. Non-finite numbers are
+ * written as {@code null}, since JSON has no representation for them.</p>
+ *
+ * <p>When the buffer fills up, {@link #flushBuffer()} is called; this
+ * class grows the buffer, while {@link JsonResponseWriter} streams it to
+ * the HTTP response instead.</p>
+ */
+public class JsonWriter {
+
+    private static final int MAX_DEPTH = 64;
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    protected byte[] buffer;
+    protected int count;
+
+    /**
+     * Whether the container at each depth already holds an element.
+     */
+    private final boolean[] hasElements = new boolean[MAX_DEPTH];
+    private int depth;
+    private boolean afterName;
+
+    /**
+     * Creates a writer with a growable buffer of the given initial size.
+     */
+    public JsonWriter(int capacity) {
+        this(new byte[Math.max(capacity, 16)]);
+    }
+
+    JsonWriter(byte[] buffer) {
+        this.buffer = buffer;
+    }
+
+    public JsonWriter beginObject() throws IOException {
+        beforeValue();
+        writeByte('{');
+        push();
+        return this;
+    }
+
+    public JsonWriter endObject() throws IOException {
+        pop();
+        writeByte('}');
+        return this;
+    }
+
+    public JsonWriter beginArray() throws IOException {
+        beforeValue();
+        writeByte('[');
+        push();
+        return this;
+    }
+
+    public JsonWriter endArray() throws IOException {
+        pop();
+        writeByte(']');
+        return this;
+    }
+
+    /**
+     * Writes an object member name; the next call writes its value.
+     */
+    public JsonWriter name(String name) throws IOException {
+        if (depth == 0 || afterName) throw new IllegalStateException("Unexpected member name");
+
+        separator();
+        writeString(name);
+        writeByte(':');
+        afterName = true;
+        return this;
+    }
+
+    public JsonWriter nullValue() throws IOException {
+        beforeValue();
+        writeAscii("null");
+        return this;
+    }
+
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) return nullValue();
+
+        beforeValue();
+        writeString(value);
+        return this;
+    }
+
+    public JsonWriter value(boolean value) throws IOException {
+        beforeValue();
+        writeAscii(value ? "true" : "false");
+        return this;
+    }
+
+    public JsonWriter value(long value) throws IOException {
+        beforeValue();
+        writeAscii(Long.toString(value));
+        return this;
+    }
+
+    public JsonWriter value(double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) return nullValue();
+
+        beforeValue();
+        writeAscii(Double.toString(value));
+        return this;
+    }
+
+    /**
+     * Writes a map, collection, array of objects, number, boolean or string;
+     * any other value is written as its {@code toString()}.
+     */
+    public JsonWriter value(Object value) throws IOException {
+        if (value == null) return nullValue();
+        if (value instanceof CharSequence) return value(value.toString());
+        if (value instanceof Boolean) return value(((Boolean) value).booleanValue());
+
+        if (value instanceof Double || value instanceof Float) {
+            return value(((Number) value).doubleValue());
+        }
+
+        if (value instanceof Long || value instanceof Integer
+                || value instanceof Short || value instanceof Byte) {
+            return value(((Number) value).longValue());
+        }
+
+        if (value instanceof Number) {
+            beforeValue();
+            writeAscii(value.toString());
+            return this;
+        }
+
+        if (value instanceof Map) {
+            beginObject();
+
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                name(String.valueOf(entry.getKey()));
+                value(entry.getValue());
+            }
+
+            return endObject();
+        }
+
+        if (value instanceof Collection || value instanceof Object[]) {
+            Iterable<?> items = value instanceof Collection
+                    ? (Collection<?>) value
+                    : Arrays.asList((Object[]) value);
+
+            beginArray();
+            for (Object item : items) value(item);
+            return endArray();
+        }
+
+        return value(value.toString());
+    }
+
+    /**
+     * Returns the JSON written so far.
+     */
+    @Override
+    public String toString() {
+        return new String(buffer, 0, count, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Makes room in the buffer. The default grows it.
+     */
+    protected void flushBuffer() throws IOException {
+        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+    }
+
+    private void beforeValue() throws IOException {
+        if (afterName) {
+            afterName = false;
+        } else if (depth > 0) {
+            separator();
+        }
+    }
+
+    private void separator() throws IOException {
+        if (hasElements[depth - 1]) writeByte(',');
+        hasElements[depth - 1] = true;
+    }
+
+    private void push() {
+        if (depth == MAX_DEPTH) throw new IllegalStateException("JSON nested too deeply");
+
+        hasElements[depth++] = false;
+    }
+
+    private void pop() {
+        if (depth == 0 || afterName) throw new IllegalStateException("Unexpected end of container");
+
+        depth--;
+    }
+
+    private void writeString(String value) throws IOException {
+        writeByte('"');
+
+        int length = value.length();
+
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+
+            if (c < 0x80) {
+                if (c == '"' || c == '\\') {
+                    writeByte('\\');
+                    writeByte(c);
+                } else if (c >= 0x20) {
+                    writeByte(c);
+                } else {
+                    writeControl(c);
+                }
+            } else if (c < 0x800) {
+                writeByte(0xC0 | (c >> 6));
+                writeByte(0x80 | (c & 0x3F));
+            } else if (c == 0x2028 || c == 0x2029) {
+                writeUnicodeEscape(c);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+
+                writeByte(0xF0 | (codePoint >> 18));
+                writeByte(0x80 | ((codePoint >> 12) & 0x3F));
+                writeByte(0x80 | ((codePoint >> 6) & 0x3F));
+                writeByte(0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogate, same replacement as String.getBytes
+                writeByte('?');
+            } else {
+                writeByte(0xE0 | (c >> 12));
+                writeByte(0x80 | ((c >> 6) & 0x3F));
+                writeByte(0x80 | (c & 0x3F));
+            }
+        }
+
+        writeByte('"');
+    }
+
+    private void writeControl(char c) throws IOException {
+        switch (c) {
+            case '\b':
+                writeAscii("\\b");
+                break;
+            case '\f':
+                writeAscii("\\f");
+                break;
+            case '\n':
+                writeAscii("\\n");
+                break;
+            case '\r':
+                writeAscii("\\r");
+                break;
+            case '\t':
+                writeAscii("\\t");
+                break;
+            default:
+                writeUnicodeEscape(c);
+        }
+    }
+
+    private void writeUnicodeEscape(char c) throws IOException {
+        writeByte('\\');
+        writeByte('u');
+        writeByte(HEX[(c >> 12) & 0xF]);
+        writeByte(HEX[(c >> 8) & 0xF]);
+        writeByte(HEX[(c >> 4) & 0xF]);
+        writeByte(HEX[c & 0xF]);
+    }
+
+    private void writeAscii(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            writeByte(value.charAt(i));
+        }
+    }
+
+    private void writeByte(int b) throws IOException {
+        if (count == buffer.length) flushBuffer();
+
+        buffer[count++] = (byte) b;
+    }
+}
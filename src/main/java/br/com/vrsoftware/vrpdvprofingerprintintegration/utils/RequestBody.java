@@ -0,0 +1,213 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.utils;
+
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.FingerprintErrorCodes;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.FingerprintException;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.PayloadTooLargeException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded access to HTTP request bodies.
+ *
+ * <p>A declared {@code Content-Length} above the limit is rejected before
+ * anything is read; chunked or understated bodies are cut off with a
+ * {@link PayloadTooLargeException} as soon as the limit is crossed, so an
+ * oversized body never has to fit in memory.</p>
+ */
+public final class RequestBody {
+
+    /**
+     * Default limit for request bodies, configurable through
+     * {@code fingerprint.http.maxBodyBytes} (1 MB).
+     */
+    public static final long MAX_BODY_BYTES = Long.getLong("fingerprint.http.maxBodyBytes", 1024 * 1024);
+
+    private RequestBody() {
+    }
+
+    /**
+     * Opens the request body, limited to {@link #MAX_BODY_BYTES}.
+     */
+    public static InputStream open(HttpExchange exchange) {
+        return open(exchange, MAX_BODY_BYTES);
+    }
+
+    /**
+     * Opens the request body, limited to {@code maxBytes}.
+     */
+    public static InputStream open(HttpExchange exchange, long maxBytes) {
+        String declared = exchange.getRequestHeaders().getFirst("Content-Length");
+
+        if (declared != null) {
+            try {
+                if (Long.parseLong(declared.trim()) > maxBytes) throw new PayloadTooLargeException(maxBytes);
+            } catch (NumberFormatException ignored) {
+                // The server rejects malformed lengths; the stream limit still applies
+            }
+        }
+
+        return new BoundedInputStream(exchange.getRequestBody(), maxBytes);
+    }
+
+    /**
+     * Opens the request body as a streaming JSON reader, limited to {@link #MAX_BODY_BYTES}.
+     */
+    public static JsonReader openJson(HttpExchange exchange) {
+        return openJson(exchange, MAX_BODY_BYTES);
+    }
+
+    /**
+     * Opens the request body as a streaming JSON reader, limited to {@code maxBytes}.
+     */
+    public static JsonReader openJson(HttpExchange exchange, long maxBytes) {
+        return new JsonReader(new InputStreamReader(open(exchange, maxBytes), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads the top-level JSON object of the request body, one member at a time.
+     *
+     * <p>The handler must consume the value of every member it is given,
+     * calling {@link JsonReader#skipValue()} for those it does not need.
+     * Malformed JSON and unexpected value types fail with
+     * {@code INVALID_REQUEST}.</p>
+     */
+    public static void readObject(HttpExchange exchange, FieldReader fields) throws IOException {
+        readObject(exchange, MAX_BODY_BYTES, fields);
+    }
+
+    /**
+     * Reads the top-level JSON object of a request body limited to {@code maxBytes}.
+     *
+     * @see #readObject(HttpExchange, FieldReader)
+     */
+    public static void readObject(HttpExchange exchange, long maxBytes, FieldReader fields) throws IOException {
+        try (JsonReader reader = openJson(exchange, maxBytes)) {
+            reader.beginObject();
+
+            while (reader.hasNext()) {
+                fields.read(reader.nextName(), reader);
+            }
+
+            reader.endObject();
+        } catch (MalformedJsonException | EOFException | IllegalStateException | NumberFormatException e) {
+            throw invalid("Malformed request body");
+        }
+    }
+
+    /**
+     * Reads the given scalar members of the request body as strings, skipping the rest.
+     *
+     * @return the members present and not null, keyed by name
+     */
+    public static Map<String, String> readFields(HttpExchange exchange, String... names) throws IOException {
+        Map<String, String> values = new HashMap<>();
+
+        readObject(exchange, (name, reader) -> {
+            for (String wanted : names) {
+                if (wanted.equals(name)) {
+                    String value = nextStringOrNull(reader);
+                    if (value != null) values.put(name, value);
+                    return;
+                }
+            }
+
+            reader.skipValue();
+        });
+
+        return values;
+    }
+
+    /**
+     * Reads a string value, or {@code null} for a JSON null.
+     */
+    public static String nextStringOrNull(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+
+        return reader.nextString();
+    }
+
+    /**
+     * Returns the value of a required field, or fails with {@code INVALID_REQUEST}.
+     */
+    public static <T> T require(T value, String field) {
+        if (value == null) throw invalid("Missing field: " + field);
+        return value;
+    }
+
+    /**
+     * Creates the error for a body that is not valid JSON or has unexpected types.
+     */
+    public static FingerprintException invalid(String message) {
+        return new FingerprintException(FingerprintErrorCodes.INVALID_REQUEST, message);
+    }
+
+    /**
+     * Consumes one member of a JSON object being read by {@link #readObject}.
+     */
+    @FunctionalInterface
+    public interface FieldReader {
+
+        void read(String name, JsonReader reader) throws IOException;
+    }
+
+    /**
+     * Input stream that fails once more than a fixed number of bytes is read.
+     */
+    private static final class BoundedInputStream extends FilterInputStream {
+
+        private final long maxBytes;
+        private long read;
+
+        BoundedInputStream(InputStream input, long maxBytes) {
+            super(input);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) count(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            // Ask for one byte past the limit so an oversized body is detected
+            long allowed = maxBytes - read + 1;
+            int n = super.read(buffer, offset, (int) Math.min(length, Math.max(allowed, 1)));
+            if (n > 0) count(n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, maxBytes - read + 1));
+            count(skipped);
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void count(long n) {
+            read += n;
+            if (read > maxBytes) throw new PayloadTooLargeException(maxBytes);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.warmup;
+
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.image.RawImageExtractor;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.matching.MatchingPool;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.metrics.Metrics;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.utils.JsonWriter;
+import com.machinezoo.sourceafis.FingerprintMatcher;
+import com.machinezoo.sourceafis.FingerprintTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Startup warm-up of template extraction, matching and response encoding.
+ *
+ * <p>Runs extraction and match iterations over the samples bundled in
+ * {@code /warmup} on a background thread while the HTTP server starts, so
+ * class loading, JIT compilation and SourceAFIS static initialization are
+ * paid before the first customer instead of during it. Stage latencies of
+ * these iterations go to {@link Metrics#detached() detached} metrics, so
+ * the cold first runs do not skew the service histograms.</p>
+ *
+ * <p>The service reports ready once the warm-up finishes, or fails; it is
+ * configured with {@code fingerprint.warmup.enabled} and
+ * {@code fingerprint.warmup.iterations}.</p>
+ */
+public final class Warmup {
+
+    private static final Warmup SHARED = new Warmup();
+
+    private static final String RESOURCES = "/warmup/";
+
+    private final boolean enabled = Boolean.parseBoolean(System.getProperty("fingerprint.warmup.enabled", "true"));
+    private final int iterations = Integer.getInteger("fingerprint.warmup.iterations", 10);
+
+    private volatile boolean started = false;
+    private volatile boolean ready = false;
+    private volatile long elapsedMillis = 0;
+
+    private Warmup() {
+    }
+
+    /**
+     * Returns the warm-up shared by the whole service.
+     */
+    public static Warmup shared() {
+        return SHARED;
+    }
+
+    /**
+     * Starts the warm-up on a background thread; later calls do nothing.
+     */
+    public synchronized void start() {
+        if (started) return;
+        started = true;
+
+        if (!enabled || iterations <= 0) {
+            ready = true;
+            return;
+        }
+
+        Thread thread = new Thread(this::run, "Warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Returns whether the warm-up has finished, i.e. the service is ready for traffic.
+     */
+    public boolean ready() {
+        return ready;
+    }
+
+    /**
+     * Returns the time the warm-up took, in milliseconds, or {@code 0} while running.
+     */
+    public long elapsedMillis() {
+        return elapsedMillis;
+    }
+
+    private void run() {
+        long start = System.currentTimeMillis();
+
+        try {
+            Properties properties = new Properties();
+
+            try (InputStream input = open("warmup.properties")) {
+                properties.load(input);
+            }
+
+            int width = Integer.parseInt(properties.getProperty("width"));
+            int height = Integer.parseInt(properties.getProperty("height"));
+            double dpi = Double.parseDouble(properties.getProperty("dpi"));
+
+            byte[] pixels = read("finger-a-1.raw");
+            String sameJson = new String(read("finger-a-2.json"), StandardCharsets.UTF_8).trim();
+            String differentJson = new String(read("finger-b-1.json"), StandardCharsets.UTF_8).trim();
+
+            RawImageExtractor extractor = new RawImageExtractor(Metrics.detached());
+
+            for (int i = 0; i < iterations; i++) {
+                iterate(extractor, pixels, width, height, dpi, sameJson, differentJson);
+            }
+
+            elapsedMillis = System.currentTimeMillis() - start;
+
+            System.out.println(
+                    "Warm-up finished: " + iterations + " iterations in " + elapsedMillis + " ms"
+            );
+        } catch (Exception e) {
+            elapsedMillis = System.currentTimeMillis() - start;
+
+            System.out.println(
+                    "Warm-up failed after " + elapsedMillis + " ms: " + e
+            );
+        } finally {
+            ready = true;
+        }
+    }
+
+    /**
+     * Runs one capture-and-match round the way the request paths do.
+     */
+    private static void iterate(
+            RawImageExtractor extractor,
+            byte[] pixels,
+            int width,
+            int height,
+            double dpi,
+            String sameJson,
+            String differentJson
+    ) throws Exception {
+        FingerprintTemplate probe = extractor.extract(pixels, width, height, dpi);
+
+        FingerprintTemplate same = new FingerprintTemplate(sameJson);
+        FingerprintTemplate different = new FingerprintTemplate(differentJson);
+
+        FingerprintMatcher matcher = new FingerprintMatcher(probe);
+        double sameScore = matcher.match(same);
+
+        // Starts the shared pool threads used by identification and batch matching
+        double differentScore = MatchingPool.shared().submit(() -> matcher.match(different)).get();
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("fingerprint", probe.json());
+        data.put("matched", sameScore > differentScore);
+        data.put("score", sameScore);
+
+        new JsonWriter(4096).value(data);
+    }
+
+    private static InputStream open(String name) throws IOException {
+        InputStream input = Warmup.class.getResourceAsStream(RESOURCES + name);
+        if (input == null) throw new IOException("Missing warm-up sample " + name);
+
+        return input;
+    }
+
+    private static byte[] read(String name) throws IOException {
+        try (InputStream input = open(name)) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+
+            return output.toByteArray();
+        }
+    }
+}
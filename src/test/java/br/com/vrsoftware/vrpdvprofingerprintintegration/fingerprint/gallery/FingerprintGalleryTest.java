@@ -0,0 +1,79 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.gallery;
+
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.exceptions.GalleryVersionConflictException;
+import br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.template.TemplateCodec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FingerprintGalleryTest {
+
+    @TempDir
+    File directory;
+
+    @Test
+    void reloadKeepsTemplatesAndVersion() throws Exception {
+        File file = new File(directory, "gallery.dat");
+
+        FingerprintGallery gallery = new FingerprintGallery(new GalleryStore(file));
+        assertEquals(0, gallery.load());
+
+        assertEquals(1, gallery.enroll("1", sample("finger-a-1")));
+        assertEquals(2, gallery.enroll("2", TemplateCodec.toBase64(sample("finger-b-1"))));
+        assertEquals(3, gallery.enroll("1", sample("finger-a-2")));
+        assertEquals(4, gallery.remove("2"));
+        assertEquals(-1, gallery.remove("2"));
+
+        FingerprintGallery reloaded = new FingerprintGallery(new GalleryStore(file));
+
+        assertEquals(1, reloaded.load());
+        assertEquals(1, reloaded.size());
+        assertEquals(4, reloaded.version());
+        assertEquals("1", reloaded.entries()[0].id);
+    }
+
+    @Test
+    void deltaIsAppliedOnlyAtItsBaseVersion() throws Exception {
+        File file = new File(directory, "gallery.dat");
+
+        FingerprintGallery gallery = new FingerprintGallery(new GalleryStore(file));
+        gallery.load();
+        gallery.enroll("1", sample("finger-a-1"));
+
+        assertThrows(
+                GalleryVersionConflictException.class,
+                () -> gallery.applyDelta(0, 0, Collections.emptyList(), Collections.singletonList("1"))
+        );
+
+        long version = gallery.applyDelta(
+                1,
+                10,
+                Arrays.asList(gallery.prepare("2", sample("finger-b-1"))),
+                Collections.singletonList("1")
+        );
+
+        assertEquals(10, version);
+
+        FingerprintGallery reloaded = new FingerprintGallery(new GalleryStore(file));
+
+        assertEquals(1, reloaded.load());
+        assertEquals("2", reloaded.entries()[0].id);
+        assertEquals(10, reloaded.version());
+    }
+
+    private static String sample(String name) throws Exception {
+        URL resource = FingerprintGalleryTest.class.getResource("/samples/" + name + ".json");
+
+        return new String(Files.readAllBytes(Paths.get(resource.toURI())), StandardCharsets.UTF_8).trim();
+    }
+}
@@ -0,0 +1,246 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.gallery;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GalleryStoreTest {
+
+    /**
+     * Size of a version record: header, operation, empty id and the 8-byte version.
+     */
+    private static final int VERSION_RECORD_BYTES = 12 + 3 + 8;
+
+    @TempDir
+    File directory;
+
+    @Test
+    void reopenKeepsPutsAndDeletes() throws IOException {
+        File file = new File(directory, "gallery.dat");
+
+        try (GalleryStore store = new GalleryStore(file)) {
+            assertTrue(store.open().isEmpty());
+            assertEquals(0, store.version());
+
+            put(store, 1, "a", template("a1"), "b", template("b1"));
+            store.write(Collections.singletonList("a"), ids("c"), templates(template("c1")), 2);
+        }
+
+        try (GalleryStore store = new GalleryStore(file)) {
+            Map<String, ByteBuffer> records = store.open();
+
+            assertEquals(Arrays.asList("b", "c"), ids(records));
+            assertArrayEquals(template("b1"), bytes(records.get("b")));
+            assertArrayEquals(template("c1"), bytes(records.get("c")));
+            assertEquals(2, store.version());
+            assertFalse(store.recoveredTornTail());
+        }
+    }
+
+    @Test
+    void discardsTruncatedLastRecord() throws IOException {
+        File file = new File(directory, "gallery.dat");
+        long committed;
+
+        try (GalleryStore store = new GalleryStore(file)) {
+            store.open();
+            put(store, 1, "a", template("a1"));
+            committed = file.length();
+            put(store, 2, "b", template("b1"));
+        }
+
+        truncate(file, committed + 20);
+
+        try (GalleryStore store = new GalleryStore(file)) {
+            Map<String, ByteBuffer> records = store.open();
+
+            assertEquals(Collections.singletonList("a"), ids(records));
+            assertEquals(1, store.version());
+            assertTrue(store.recoveredTornTail());
+
+            // The discarded tail is overwritten by the next write
+            put(store, 2, "c", template("c1"));
+        }
+
+        try (GalleryStore store = new GalleryStore(file)) {
+            assertEquals(Arrays.asList("a", "c"), ids(store.open()));
+            assertEquals(2, store.version());
+            assertFalse(store.recoveredTornTail());
+        }
+    }
+
+    @Test
+    void discardsCorruptedLastRecord() throws IOException {
+        File file = new File(directory, "gallery.dat");
+        long committed;
+
+        try (GalleryStore store = new GalleryStore(file)) {
+            store.open();
+            put(store, 1, "a", template("a1"));
+            committed = file.length();
+            put(store, 2, "b", template("b1"));
+        }
+
+        // Flips a template byte of the last write, failing its checksum
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            long position = committed + 12 + 3 + 1;
+            raw.seek(position);
+            int value = raw.read();
+            raw.seek(position);
+            raw.write(value ^ 0xFF);
+        }
+
+        try (GalleryStore store = new GalleryStore(file)) {
+            Map<String, ByteBuffer> records = store.open();
+
+            assertEquals(Collections.singletonList("a"), ids(records));
+            assertArrayEquals(template("a1"), bytes(records.get("a")));
+            assertEquals(1, store.version());
+            assertTrue(store.recoveredTornTail());
+        }
+    }
+
+    @Test
+    void writeWithoutVersionRecordIsNotApplied() throws IOException {
+        File file = new File(directory, "gallery.dat");
+
+        try (GalleryStore store = new GalleryStore(file)) {
+            store.open();
+            put(store, 1, "a", template("a1"));
+            store.write(Collections.singletonList("a"), ids("b"), templates(template("b1")), 2);
+        }
+
+        truncate(file, file.length() - VERSION_RECORD_BYTES);
+
+        try (GalleryStore store = new GalleryStore(file)) {
+            Map<String, ByteBuffer> records = store.open();
+
+            assertEquals(Collections.singletonList("a"), ids(records));
+            assertEquals(1, store.version());
+        }
+    }
+
+    @Test
+    void compactionKeepsLiveRecordsAndVersion() throws IOException {
+        File file = new File(directory, "gallery.dat");
+        byte[] large = new byte[16 * 1024];
+        long version = 0;
+
+        try (GalleryStore store = new GalleryStore(file)) {
+            store.open();
+            put(store, ++version, "a", template("a1"), "b", template("b1"), "c", template("c1"));
+
+            // Replaces the same id until the file passes the compaction threshold
+            while (file.length() < 2 * 1024 * 1024) {
+                large[0]++;
+                put(store, ++version, "a", large);
+            }
+
+            store.write(Collections.singletonList("b"), ids(), templates(), ++version);
+        }
+
+        long before = file.length();
+
+        try (GalleryStore store = new GalleryStore(file)) {
+            Map<String, ByteBuffer> records = store.open();
+
+            assertTrue(store.reclaimedBytes() > 0);
+            assertEquals(Arrays.asList("a", "c"), ids(records));
+            assertArrayEquals(large, bytes(records.get("a")));
+            assertEquals(version, store.version());
+
+            put(store, ++version, "d", template("d1"));
+        }
+
+        assertTrue(file.length() < before / 10, "compacted to " + file.length() + " bytes");
+        assertFalse(new File(file.getPath() + ".compact").exists());
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+
+        try (GalleryStore store = new GalleryStore(file)) {
+            Map<String, ByteBuffer> records = store.open();
+
+            assertEquals(0, store.reclaimedBytes());
+            assertEquals(Arrays.asList("a", "c", "d"), ids(records));
+            assertEquals(version, store.version());
+        }
+    }
+
+    @Test
+    void rejectsOversizedRecords() throws IOException {
+        File file = new File(directory, "gallery.dat");
+
+        try (GalleryStore store = new GalleryStore(file)) {
+            store.open();
+
+            assertThrows(
+                    IllegalArgumentException.class,
+                    () -> put(store, 1, "a", new byte[2 * 1024 * 1024])
+            );
+            assertEquals(0, file.length());
+            assertEquals(0, store.version());
+        }
+    }
+
+    private static void put(GalleryStore store, long version, Object... idsAndTemplates) throws IOException {
+        String[] ids = new String[idsAndTemplates.length / 2];
+        byte[][] templates = new byte[ids.length][];
+
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = (String) idsAndTemplates[2 * i];
+            templates[i] = (byte[]) idsAndTemplates[2 * i + 1];
+        }
+
+        store.write(Collections.<String>emptyList(), ids(ids), templates(templates), version);
+    }
+
+    private static List<String> ids(String... ids) {
+        return Arrays.asList(ids);
+    }
+
+    /**
+     * Returns the live ids in alphabetical order; the store keeps them in file order.
+     */
+    private static List<String> ids(Map<String, ByteBuffer> records) {
+        String[] ids = records.keySet().toArray(new String[0]);
+        Arrays.sort(ids);
+
+        return Arrays.asList(ids);
+    }
+
+    private static List<byte[]> templates(byte[]... templates) {
+        return Arrays.asList(templates);
+    }
+
+    private static byte[] template(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        ByteBuffer copy = buffer.duplicate();
+        byte[] bytes = new byte[copy.remaining()];
+        copy.get(bytes);
+
+        return bytes;
+    }
+
+    private static void truncate(File file, long length) throws IOException {
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.setLength(length);
+        }
+    }
+}
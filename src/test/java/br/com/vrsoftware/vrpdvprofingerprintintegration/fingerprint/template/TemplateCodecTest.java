@@ -0,0 +1,149 @@
+package br.com.vrsoftware.vrpdvprofingerprintintegration.fingerprint.template;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TemplateCodecTest {
+
+    private static final String[] SAMPLES = {"finger-a-1", "finger-a-2", "finger-b-1"};
+
+    /**
+     * Largest error of a direction stored in 1/65536 of a turn, plus rounding slack.
+     */
+    private static final double DIRECTION_TOLERANCE = Math.PI / 65536 + 1e-9;
+
+    @Test
+    void roundTripKeepsMinutiae() throws Exception {
+        for (String name : SAMPLES) {
+            String json = sample(name);
+
+            TemplateCodec.Minutiae expected = TemplateCodec.readMinutiae(json);
+            TemplateCodec.Minutiae actual = TemplateCodec.readMinutiae(TemplateCodec.encode(json));
+
+            assertSameMinutiae(name, expected, actual);
+        }
+    }
+
+    @Test
+    void base64RoundTripGoesBackToJson() throws Exception {
+        for (String name : SAMPLES) {
+            String json = sample(name);
+            String wire = TemplateCodec.toBase64(json);
+
+            String decoded = TemplateCodec.toJson(wire);
+
+            assertTrue(TemplateCodec.isJson(decoded), name);
+            assertSameMinutiae(name, TemplateCodec.readMinutiae(json), TemplateCodec.readMinutiae(decoded));
+            assertSameMinutiae(name, TemplateCodec.readMinutiae(json), TemplateCodec.readMinutiae(wire));
+        }
+    }
+
+    @Test
+    void reencodingIsStable() throws Exception {
+        byte[] encoded = TemplateCodec.encode(sample("finger-a-1"));
+
+        assertArrayEquals(encoded, TemplateCodec.encode(TemplateCodec.decode(encoded)));
+    }
+
+    @Test
+    void rejectsTruncatedInput() throws Exception {
+        byte[] encoded = TemplateCodec.encode(sample("finger-a-1"));
+
+        for (int length = 0; length < encoded.length; length++) {
+            byte[] truncated = Arrays.copyOf(encoded, length);
+
+            assertThrows(
+                    IllegalArgumentException.class,
+                    () -> TemplateCodec.readMinutiae(truncated),
+                    "length " + length
+            );
+        }
+    }
+
+    @Test
+    void rejectsBadMagicAndVersion() throws Exception {
+        byte[] encoded = TemplateCodec.encode(sample("finger-a-1"));
+
+        byte[] badMagic = encoded.clone();
+        badMagic[0] = 'X';
+        assertThrows(IllegalArgumentException.class, () -> TemplateCodec.readMinutiae(badMagic));
+
+        byte[] badVersion = encoded.clone();
+        badVersion[2] = (byte) (TemplateCodec.VERSION + 1);
+        assertThrows(IllegalArgumentException.class, () -> TemplateCodec.readMinutiae(badVersion));
+    }
+
+    @Test
+    void rejectsCountLargerThanPayload() {
+        // magic, version, width 1, height 1, count 100 and no minutiae
+        byte[] data = {'V', 'F', TemplateCodec.VERSION, 1, 1, 100};
+
+        assertThrows(IllegalArgumentException.class, () -> TemplateCodec.readMinutiae(data));
+    }
+
+    /**
+     * Compares minutiae regardless of order, since the encoder sorts them by position.
+     */
+    private static void assertSameMinutiae(
+            String name,
+            TemplateCodec.Minutiae expected,
+            TemplateCodec.Minutiae actual
+    ) {
+        assertEquals(expected.width, actual.width, name);
+        assertEquals(expected.height, actual.height, name);
+        assertEquals(expected.count(), actual.count(), name);
+
+        Integer[] expectedOrder = byPosition(expected);
+        Integer[] actualOrder = byPosition(actual);
+
+        for (int i = 0; i < expected.count(); i++) {
+            int e = expectedOrder[i];
+            int a = actualOrder[i];
+            String where = name + " minutia " + i;
+
+            assertEquals(expected.x[e], actual.x[a], where);
+            assertEquals(expected.y[e], actual.y[a], where);
+            assertEquals(expected.bifurcation[e], actual.bifurcation[a], where);
+            assertTrue(
+                    angle(expected.direction[e], actual.direction[a]) <= DIRECTION_TOLERANCE,
+                    where + ": " + expected.direction[e] + " != " + actual.direction[a]
+            );
+        }
+    }
+
+    private static Integer[] byPosition(TemplateCodec.Minutiae minutiae) {
+        Integer[] order = new Integer[minutiae.count()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+
+        Arrays.sort(order, Comparator.<Integer>comparingInt(i -> minutiae.y[i])
+                .thenComparingInt(i -> minutiae.x[i])
+                .thenComparingDouble(i -> minutiae.direction[i]));
+
+        return order;
+    }
+
+    /**
+     * Returns the distance between two directions on the circle.
+     */
+    private static double angle(double a, double b) {
+        double difference = Math.abs(a - b) % (2 * Math.PI);
+        return Math.min(difference, 2 * Math.PI - difference);
+    }
+
+    private static String sample(String name) throws Exception {
+        URL resource = TemplateCodecTest.class.getResource("/samples/" + name + ".json");
+
+        return new String(Files.readAllBytes(Paths.get(resource.toURI())), StandardCharsets.UTF_8).trim();
+    }
+}